@@ -0,0 +1,58 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trips of the small connector calls against the in-process stub server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConnectorBenchmark {
+
+    private StubPolarionServer server;
+    private PolarionConnector connector;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubPolarionServer(100);
+        connector = new PolarionConnector(server.getUrl(), "token");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public void connect() throws IOException, InterruptedException {
+        connector.connect();
+    }
+
+    @Benchmark
+    public String createNewTestRun() throws IOException, InterruptedException {
+        return connector.createNewTestRun("P", "bench", "Benchmark", "automated", "group");
+    }
+
+    @Benchmark
+    public void updateWorkItemWithWorkFlow() throws IOException, InterruptedException {
+        connector.updateWorkItemWithWorkFlow("P", "WI-1", "verify");
+    }
+}
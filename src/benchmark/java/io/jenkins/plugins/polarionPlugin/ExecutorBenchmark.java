@@ -0,0 +1,69 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk workflow updates against a stub server answering after 50ms, with one worker per update on
+ * platform or virtual threads. The difference is the cost of starting and parking the workers; on
+ * Java versions without virtual threads both modes use platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutorBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"100", "1000"})
+    public int concurrency;
+
+    private StubPolarionServer server;
+    private PolarionConnector connector;
+    private List<String> workItems;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubPolarionServer(1, 50);
+        connector = new PolarionConnector(server.getUrl(), "token");
+        workItems = IntStream.range(0, concurrency).mapToObj(i -> "WI-" + i).collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int updateWorkItems() throws InterruptedException {
+        return ParallelTasks.run(
+                        workItems,
+                        concurrency,
+                        PolarionExecutors.ioThreads("Polarion benchmark", virtualThreads),
+                        id -> {
+                            connector.updateWorkItemWithWorkFlow("P", id, "close");
+                            return id;
+                        })
+                .getSucceeded()
+                .size();
+    }
+}
@@ -0,0 +1,73 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Request body generation and response parsing, without any I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PayloadBenchmark {
+
+    @Param({"10", "1000"})
+    public int projects;
+
+    private PolarionConnector connector;
+    private String projectsResponse;
+    private String testRunResponse;
+
+    @Setup
+    public void setUp() {
+        connector = new PolarionConnector("http://localhost/polarion", "token");
+        projectsResponse = StubPolarionServer.projectsPage(projects);
+        testRunResponse = "{\"data\":[{\"type\":\"testruns\",\"id\":\"P/run-1\"}]}";
+    }
+
+    @Benchmark
+    public String testRunBody() {
+        return connector.singleTestRunWithAllFields("run-1", "Nightly", "automated", "group");
+    }
+
+    @Benchmark
+    public String workflowBody() {
+        return connector.createWorkItemBodyForWokflowAction("P/WI-1");
+    }
+
+    @Benchmark
+    public String parseTestRunResponse() {
+        return new JSONObject(testRunResponse).getJSONArray("data").getJSONObject(0).getString("id");
+    }
+
+    @Benchmark
+    public void parseProjectsWithOrgJson(Blackhole blackhole) {
+        JSONArray data = new JSONObject(projectsResponse).getJSONArray("data");
+        for (int i = 0; i < data.length(); i++) {
+            blackhole.consume(data.getJSONObject(i).getString("id"));
+        }
+    }
+
+    @Benchmark
+    public Object parseProjectsStreaming() throws IOException {
+        return JsonStreams.readIds(new StringReader(projectsResponse)).getIds();
+    }
+}
@@ -0,0 +1,90 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Upload of result files of varying size, plain and gzip-compressed, and the streaming merge of
+ * many files. Divide the file size by the average time for throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class UploadBenchmark {
+
+    @Param({"10240", "1048576", "33554432"})
+    public long fileSize;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private StubPolarionServer server;
+    private PolarionConnector connector;
+    private Path dir;
+    private File file;
+    private List<File> parts;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubPolarionServer(1);
+        connector = new PolarionConnector(server.getUrl(), "token");
+        connector.setCompressUploads(compress);
+        dir = Files.createTempDirectory("polarion-benchmark");
+        file = XUnitFiles.write(dir, "TEST-result.xml", fileSize).toFile();
+        parts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            parts.add(XUnitFiles.write(dir, "TEST-part" + i + ".xml", fileSize / 20).toFile());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        try (var files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public String publishFile() throws IOException, InterruptedException {
+        return connector.publishResults(file, "P", "run-1");
+    }
+
+    @Benchmark
+    public String publishMerged() throws IOException, InterruptedException {
+        return connector.publishResults(
+                () -> XUnitStreams.pipe("benchmark merge", out -> XUnitStreams.merge(parts, out)), "P", "run-1");
+    }
+
+    @Benchmark
+    public long mergeOnly() throws IOException {
+        try (InputStream in = XUnitStreams.pipe("benchmark merge", out -> XUnitStreams.merge(parts, out))) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
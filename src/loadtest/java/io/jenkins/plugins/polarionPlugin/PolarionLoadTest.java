@@ -0,0 +1,212 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.queue.QueueTaskFuture;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+/**
+ * Runs many concurrent builds with a {@link PolarionNotifier} or a
+ * {@link PolarionWorkItemStatusUpdateBuilder} against a {@link StubPolarionServer}. It reports
+ * throughput, build durations and the controller's threads and heap. Not part of the regular build; run with
+ *   mvn -Ploadtest test [-Dloadtest.builds=200] [-Dloadtest.rounds=1] [-Dloadtest.latencyMillis=50]
+ *       [-Dloadtest.errorRate=0] [-Dloadtest.throttleRate=0] [-Dloadtest.maxPayloadBytes=0]
+ *       [-Dloadtest.resultFileBytes=200000] [-Dloadtest.maxUploadSizeMb=0]
+ * Several rounds over the same jobs make a soak test; heap and threads should level off between rounds.
+ * With faults injected every build must still end, either successfully or failed; with result files split
+ * below the stub's payload limit no import may be refused as too large.
+ */
+public class PolarionLoadTest {
+
+    private static final int BUILDS = Integer.getInteger("loadtest.builds", 200);
+    private static final int ROUNDS = Integer.getInteger("loadtest.rounds", 1);
+    private static final long LATENCY_MILLIS = Long.getLong("loadtest.latencyMillis", 50);
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.errorRate", "0"));
+    private static final double THROTTLE_RATE = Double.parseDouble(System.getProperty("loadtest.throttleRate", "0"));
+    private static final long MAX_PAYLOAD_BYTES = Long.getLong("loadtest.maxPayloadBytes", 0);
+    private static final long RESULT_FILE_BYTES = Long.getLong("loadtest.resultFileBytes", 200_000);
+    private static final int MAX_UPLOAD_SIZE_MB = Integer.getInteger("loadtest.maxUploadSizeMb", 0);
+    private static final String WORK_ITEMS =
+            IntStream.rangeClosed(1, 20).mapToObj(i -> "WI-" + i).collect(Collectors.joining(","));
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void concurrentBuilds() throws Exception {
+        try (StubPolarionServer server = new StubPolarionServer(10, LATENCY_MILLIS)) {
+            server.setErrorRate(ERROR_RATE);
+            server.setThrottleRate(THROTTLE_RATE);
+            server.setMaxPayloadBytes(MAX_PAYLOAD_BYTES);
+            PolarionWorkItemStatusUpdateBuilder.getGlobalConfig()
+                    .setDefaultConnection(server.getUrl(), Secret.fromString("token"));
+            j.jenkins.setNumExecutors(BUILDS);
+
+            List<FreeStyleProject> publishers = new ArrayList<>();
+            List<FreeStyleProject> updates = new ArrayList<>();
+            long maxUploadBytes = 0;
+            for (int i = 0; i < BUILDS; i++) {
+                FreeStyleProject project = j.createFreeStyleProject("load-" + i);
+                if (i % 2 == 0) {
+                    PolarionNotifier notifier =
+                            new PolarionNotifier("P", "load-", "Load test", "automated", "", "results.xml");
+                    if (MAX_UPLOAD_SIZE_MB > 0) {
+                        notifier.setMaxUploadSizeMb(MAX_UPLOAD_SIZE_MB);
+                    }
+                    maxUploadBytes = notifier.getMaxUploadSizeMb() * 1024L * 1024L;
+                    project.getBuildersList().add(new ResultFileBuilder());
+                    project.getPublishersList().add(notifier);
+                    publishers.add(project);
+                } else {
+                    project.getBuildersList().add(new PolarionWorkItemStatusUpdateBuilder("P", WORK_ITEMS, "close"));
+                    updates.add(project);
+                }
+            }
+
+            // imports are split below the payload limit of the stub, so none may be refused as too large
+            boolean splitBelowLimit = MAX_PAYLOAD_BYTES == 0 || maxUploadBytes <= MAX_PAYLOAD_BYTES;
+            boolean faultsInjected = ERROR_RATE > 0 || THROTTLE_RATE > 0 || !splitBelowLimit;
+            int successes = 0;
+            for (int round = 1; round <= ROUNDS; round++) {
+                ResourceSampler sampler = new ResourceSampler();
+                long start = System.nanoTime();
+                List<QueueTaskFuture<FreeStyleBuild>> published = schedule(publishers);
+                List<QueueTaskFuture<FreeStyleBuild>> updated = schedule(updates);
+                List<FreeStyleBuild> publishBuilds = await(published);
+                List<FreeStyleBuild> updateBuilds = await(updated);
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                sampler.stop();
+
+                Map<String, Integer> results = new TreeMap<>();
+                for (FreeStyleBuild build : concat(publishBuilds, updateBuilds)) {
+                    Result result = build.getResult();
+                    results.merge(String.valueOf(result), 1, Integer::sum);
+                    if (result == Result.SUCCESS) {
+                        successes++;
+                    } else {
+                        assertTrue(
+                                build + " ended with " + result + " although no faults were injected",
+                                faultsInjected);
+                        assertEquals(build + " neither succeeded nor failed", Result.FAILURE, result);
+                    }
+                }
+                System.out.println(String.format(
+                        "Round %s: %s builds in %sms, %.1f builds/s, results %s",
+                        round, BUILDS, millis, BUILDS * 1000.0 / Math.max(1, millis), results));
+                System.out.println("  Publisher builds: " + durations(publishBuilds));
+                System.out.println("  Workflow update builds: " + durations(updateBuilds));
+                System.out.println(String.format(
+                        "  Controller: peak %s threads, peak heap %s MB", sampler.peakThreads, sampler.peakHeapMb));
+                System.out.println("  Stub server responses by status: " + server.getStatusCodes());
+                if (splitBelowLimit) {
+                    assertFalse(
+                            "imports split to " + maxUploadBytes + " bytes were refused as larger than "
+                                    + MAX_PAYLOAD_BYTES + " bytes",
+                            server.getStatusCodes().containsKey(413));
+                }
+            }
+            if (!faultsInjected) {
+                assertEquals(BUILDS * ROUNDS, successes);
+            }
+        }
+    }
+
+    private static List<QueueTaskFuture<FreeStyleBuild>> schedule(List<FreeStyleProject> projects) {
+        List<QueueTaskFuture<FreeStyleBuild>> futures = new ArrayList<>();
+        for (FreeStyleProject project : projects) {
+            futures.add(project.scheduleBuild2(0));
+        }
+        return futures;
+    }
+
+    private static List<FreeStyleBuild> await(List<QueueTaskFuture<FreeStyleBuild>> futures) throws Exception {
+        List<FreeStyleBuild> builds = new ArrayList<>();
+        for (QueueTaskFuture<FreeStyleBuild> future : futures) {
+            builds.add(future.get(30, TimeUnit.MINUTES));
+        }
+        return builds;
+    }
+
+    private static List<FreeStyleBuild> concat(List<FreeStyleBuild> first, List<FreeStyleBuild> second) {
+        List<FreeStyleBuild> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static String durations(List<FreeStyleBuild> builds) {
+        if (builds.isEmpty()) {
+            return "none";
+        }
+        long[] millis = builds.stream().mapToLong(FreeStyleBuild::getDuration).toArray();
+        Arrays.sort(millis);
+        return String.format(
+                "p50 %sms, p99 %sms, max %sms",
+                percentile(millis, 50), percentile(millis, 99), millis[millis.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Samples the thread count and used heap of this JVM, which hosts the controller, every 100ms.
+     */
+    private static final class ResourceSampler {
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private volatile int peakThreads;
+        private volatile long peakHeapMb;
+
+        ResourceSampler() {
+            executor.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+            long heapMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024);
+            peakHeapMb = Math.max(peakHeapMb, heapMb);
+        }
+
+        void stop() throws InterruptedException {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes a generated result file into the workspace, for the publisher to upload.
+     */
+    private static final class ResultFileBuilder extends TestBuilder {
+        @Override
+        public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+                throws IOException {
+            XUnitFiles.write(Paths.get(build.getWorkspace().getRemote()), "results.xml", RESULT_FILE_BYTES);
+            return true;
+        }
+    }
+}
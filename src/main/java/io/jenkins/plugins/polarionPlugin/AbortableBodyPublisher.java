@@ -0,0 +1,138 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Request body that can be failed from another thread, which makes the HTTP client abort the exchange
+ * sending it. Before Java 16 cancelling the future of {@link java.net.http.HttpClient#sendAsync} leaves
+ * the exchange running, so an aborted upload would otherwise keep streaming and still be imported.
+ */
+final class AbortableBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private final HttpRequest.BodyPublisher body;
+    private final Set<Forwarder> active = ConcurrentHashMap.newKeySet();
+    private volatile Throwable aborted;
+
+    AbortableBodyPublisher(HttpRequest.BodyPublisher body) {
+        this.body = body;
+    }
+
+    @Override
+    public long contentLength() {
+        return body.contentLength();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        body.subscribe(new Forwarder(subscriber));
+    }
+
+    /**
+     * Fails the body of every exchange sending it now or later with {@code cause}.
+     */
+    void abort(Throwable cause) {
+        aborted = cause;
+        for (Forwarder forwarder : active) {
+            forwarder.abort(cause);
+        }
+    }
+
+    /**
+     * Passes the signals of the body on until it ends or is aborted. Downstream calls are made without
+     * holding the lock, so an abort cancels the body right away instead of waiting for the stream of
+     * {@code onNext} calls to pause; its error is passed on once a call in progress has returned.
+     */
+    private final class Forwarder implements Flow.Subscriber<ByteBuffer> {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private Flow.Subscription subscription;
+        private boolean done;
+        private boolean delivering;
+        private Throwable pendingError;
+
+        Forwarder(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            synchronized (this) {
+                this.subscription = subscription;
+            }
+            subscriber.onSubscribe(subscription);
+            active.add(this);
+            Throwable cause = aborted;
+            if (cause != null) {
+                abort(cause);
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                delivering = true;
+            }
+            try {
+                subscriber.onNext(item);
+            } finally {
+                Throwable error;
+                synchronized (this) {
+                    delivering = false;
+                    error = pendingError;
+                    pendingError = null;
+                }
+                if (error != null) {
+                    subscriber.onError(error);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (end()) {
+                subscriber.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (end()) {
+                subscriber.onComplete();
+            }
+        }
+
+        void abort(Throwable cause) {
+            Flow.Subscription cancelled;
+            boolean now;
+            synchronized (this) {
+                if (subscription == null || !end()) {
+                    return;
+                }
+                cancelled = subscription;
+                now = !delivering;
+                if (!now) {
+                    pendingError = cause;
+                }
+            }
+            cancelled.cancel();
+            if (now) {
+                subscriber.onError(cause);
+            }
+        }
+
+        private synchronized boolean end() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            active.remove(this);
+            return true;
+        }
+    }
+}
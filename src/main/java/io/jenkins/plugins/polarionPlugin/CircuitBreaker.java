@@ -0,0 +1,112 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Per-server circuit breaker. After a number of consecutive failures the breaker opens and requests
+ * to that server fail immediately for a while, instead of every build waiting for its own timeouts.
+ * Once the open period is over, a single trial request decides whether the breaker closes again.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    static final int FAILURE_THRESHOLD = Integer.getInteger(CircuitBreaker.class.getName() + ".failureThreshold", 5);
+    static final long OPEN_MILLIS = Long.getLong(CircuitBreaker.class.getName() + ".openMillis", 30_000L);
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String server;
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(String server, int failureThreshold, long openMillis) {
+        this.server = server;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    static CircuitBreaker forServer(String server) {
+        return BREAKERS.computeIfAbsent(server, key -> new CircuitBreaker(key, FAILURE_THRESHOLD, OPEN_MILLIS));
+    }
+
+    /**
+     * @return state of every breaker, keyed by server.
+     */
+    public static Map<String, State> states() {
+        Map<String, State> states = new TreeMap<>();
+        BREAKERS.forEach((server, breaker) -> states.put(server, breaker.getState()));
+        return states;
+    }
+
+    /**
+     * @throws HttpException if the breaker is open and requests should not be sent.
+     */
+    synchronized void acquire() throws HttpException {
+        if (state == State.OPEN) {
+            long remaining = openMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt);
+            if (remaining > 0) {
+                throw new HttpException(String.format(
+                        "Polarion server %s is unavailable, not sending requests for another %sms",
+                        server, remaining));
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                throw new HttpException(
+                        String.format("Polarion server %s is unavailable, waiting for a trial request", server));
+            }
+            trialInFlight = true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            LOGGER.info("Polarion server " + server + " is reachable again, closing circuit breaker");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                LOGGER.warning(String.format(
+                        "Polarion server %s failed %s times in a row, opening circuit breaker for %sms",
+                        server, consecutiveFailures, openMillis));
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called when a permitted request ended without a verdict about the server, e.g. was interrupted.
+     */
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
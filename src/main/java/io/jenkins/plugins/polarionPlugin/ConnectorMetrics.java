@@ -0,0 +1,256 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, status code, traffic and concurrency figures per Polarion endpoint, recorded for every
+ * HTTP exchange made by {@link PolarionConnector} in this JVM or on an agent on its behalf.
+ */
+public final class ConnectorMetrics {
+
+    public enum Endpoint {
+        CONNECT("Test connection"),
+        CHECK_PROJECT("Check project"),
+        CHECK_WORK_ITEM("Check work item"),
+        LIST_PROJECTS("List projects"),
+        QUERY_WORK_ITEMS("Query work items"),
+        CREATE_TEST_RUN("Create test run"),
+        IMPORT_RESULTS("Import results"),
+        WORKFLOW_UPDATE("Workflow update"),
+        JOB_STATUS("Job status"),
+        COUNT_TEST_RECORDS("Count test records");
+
+        private final String displayName;
+
+        Endpoint(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Upper bounds (inclusive, in milliseconds) of the latency histogram buckets; a last bucket
+     * collects everything slower.
+     */
+    static final long[] LATENCY_BUCKETS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 30_000, 60_000};
+
+    private static final Map<Endpoint, ConnectorMetrics> METRICS = new EnumMap<>(Endpoint.class);
+
+    static {
+        for (Endpoint endpoint : Endpoint.values()) {
+            METRICS.put(endpoint, new ConnectorMetrics(endpoint));
+        }
+    }
+
+    private final Endpoint endpoint;
+    private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+    private final ConcurrentMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private ConnectorMetrics(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public static ConnectorMetrics of(Endpoint endpoint) {
+        return METRICS.get(endpoint);
+    }
+
+    public static Iterable<ConnectorMetrics> all() {
+        return METRICS.values();
+    }
+
+    /**
+     * Takes the figures of finished exchanges. Agents receive a remoting proxy of the controller's
+     * {@link #LOCAL} recorder, so uploads from agents show up on the controller.
+     */
+    public interface Recorder {
+
+        /**
+         * @param status HTTP status of the response, -1 if the exchange ended without one.
+         */
+        void record(Endpoint endpoint, int status, long millis, long bytesSent, long bytesReceived);
+    }
+
+    /**
+     * Records into the figures of this JVM.
+     */
+    static final Recorder LOCAL = (endpoint, status, millis, bytesSent, bytesReceived) ->
+            of(endpoint).record(status, millis, bytesSent, bytesReceived);
+
+    /**
+     * Marks the start of an exchange in this JVM.
+     *
+     * @return start time to pass to {@link #finished}.
+     */
+    long started() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * @return milliseconds since {@code start}, to pass on to a {@link Recorder}.
+     */
+    long finished(long start) {
+        inFlight.decrementAndGet();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private void record(int status, long millis, long sent, long received) {
+        requests.increment();
+        totalMillis.add(millis);
+        if (status < 0) {
+            errors.increment();
+        } else {
+            statusCodes.computeIfAbsent(status, code -> new LongAdder()).increment();
+        }
+        bytesSent.add(sent);
+        bytesReceived.add(received);
+        latency.incrementAndGet(bucket(millis));
+    }
+
+    /**
+     * @return bytes of the request body sent by the last exchange with {@code request}.
+     */
+    static long bytesSent(HttpRequest request) {
+        return request.bodyPublisher()
+                .map(body -> body instanceof CountingBodyPublisher
+                        ? ((CountingBodyPublisher) body).getCount()
+                        : Math.max(0, body.contentLength()))
+                .orElse(0L);
+    }
+
+    /**
+     * @return bytes of the response body: its {@code Content-Length}, or the UTF-8 length of a body read as string.
+     */
+    static long bytesReceived(HttpResponse<?> response) {
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (length < 0 && response.body() instanceof String) {
+            length = utf8Length((String) response.body());
+        }
+        return Math.max(0, length);
+    }
+
+    static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int bucket(long millis) {
+        int index = Arrays.binarySearch(LATENCY_BUCKETS_MS, millis);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public String getDisplayName() {
+        return endpoint.getDisplayName();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return exchanges that ended without a response (I/O failure, timeout, cancellation).
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * @return exchanges running in this JVM; those of agents are counted once they finish.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getMeanMillis() {
+        long count = requests.sum();
+        return count == 0 ? 0 : totalMillis.sum() / count;
+    }
+
+    public Map<Integer, Long> getStatusCodes() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCodes.forEach((code, count) -> counts.put(code, count.sum()));
+        return counts;
+    }
+
+    /**
+     * @return upper bound in milliseconds of the bucket containing the given percentile, or
+     *     {@link Long#MAX_VALUE} if it falls into the overflow bucket; 0 without data.
+     */
+    public long getPercentileMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < latency.length(); i++) {
+            total += latency.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            seen += latency.get(i);
+            if (seen >= rank) {
+                return LATENCY_BUCKETS_MS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public long getP50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    public long getP95Millis() {
+        return getPercentileMillis(95);
+    }
+
+    public long getP99Millis() {
+        return getPercentileMillis(99);
+    }
+}
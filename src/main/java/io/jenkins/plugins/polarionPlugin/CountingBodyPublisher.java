@@ -0,0 +1,59 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of a request body as the HTTP client takes them, so streamed and compressed bodies
+ * of unknown length are measured too. The count starts over whenever the body is sent again.
+ */
+final class CountingBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private final HttpRequest.BodyPublisher body;
+    private final AtomicLong count = new AtomicLong();
+
+    CountingBodyPublisher(HttpRequest.BodyPublisher body) {
+        this.body = body;
+    }
+
+    @Override
+    public long contentLength() {
+        return body.contentLength();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        count.set(0);
+        body.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                count.addAndGet(item.remaining());
+                subscriber.onNext(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    /**
+     * @return bytes taken by the client since the body was last sent.
+     */
+    long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,149 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outcome of every test case of the last upload of a job, for delta uploads: 64-bit hashes of the
+ * test case identity mapped to hashes of its outcome, kept as two sorted arrays (16 bytes per test
+ * case) together with the test run they were imported into.
+ */
+public final class DeltaIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int FORMAT = 1;
+
+    private final String testRunId;
+    private final long[] keys;
+    private final long[] outcomes;
+
+    private DeltaIndex(String testRunId, long[] keys, long[] outcomes) {
+        this.testRunId = testRunId;
+        this.keys = keys;
+        this.outcomes = outcomes;
+    }
+
+    static DeltaIndex empty(String testRunId) {
+        return new DeltaIndex(testRunId, new long[0], new long[0]);
+    }
+
+    public String getTestRunId() {
+        return testRunId;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return whether the test case is unknown or its outcome differs from the indexed one.
+     */
+    boolean isChanged(long key, long outcome) {
+        int index = Arrays.binarySearch(keys, key);
+        return index < 0 || outcomes[index] != outcome;
+    }
+
+    boolean contains(long key) {
+        return Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    /**
+     * @return the index stored in {@code file}, or {@code null} if there is none or it is unreadable.
+     */
+    static DeltaIndex load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            String testRunId = in.readUTF();
+            int size = in.readInt();
+            long[] keys = new long[size];
+            long[] outcomes = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = in.readLong();
+                outcomes[i] = in.readLong();
+            }
+            return new DeltaIndex(testRunId, keys, outcomes);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file and moves it over {@code file}, so readers never see a
+     * partially written index.
+     */
+    void save(File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(testRunId);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(outcomes[i]);
+            }
+        }
+        Files.move(
+                tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the given parts, separated so that ("ab", "c") and ("a", "bc") differ.
+     */
+    static long hash(String... parts) {
+        long hash = 0xcbf29ce484222325L;
+        for (String part : parts) {
+            if (part != null) {
+                for (byte b : part.getBytes(StandardCharsets.UTF_8)) {
+                    hash ^= b & 0xff;
+                    hash *= 0x100000001b3L;
+                }
+            }
+            hash ^= 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static final class Builder {
+        private final String testRunId;
+        private final Map<Long, Long> outcomes = new HashMap<>();
+
+        Builder(String testRunId) {
+            this.testRunId = testRunId;
+        }
+
+        void put(long key, long outcome) {
+            outcomes.put(key, outcome);
+        }
+
+        int size() {
+            return outcomes.size();
+        }
+
+        DeltaIndex build() {
+            long[] keys = outcomes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            long[] values = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = outcomes.get(keys[i]);
+            }
+            return new DeltaIndex(testRunId, keys, values);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Reads a source stream as gzip data. Unlike {@link java.util.zip.GZIPOutputStream} this compresses
+ * on demand while the HTTP client pulls the request body, without a helper thread or a buffered copy.
+ */
+final class GzipCompressingInputStream extends SequenceInputStream {
+
+    private static final byte[] HEADER = {
+        (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    GzipCompressingInputStream(InputStream source) {
+        this(source, new CRC32(), new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    }
+
+    private GzipCompressingInputStream(InputStream source, CRC32 crc, Deflater deflater) {
+        super(new Parts(source, crc, deflater));
+    }
+
+    /**
+     * Header, deflated body and trailer. The trailer is created only after the body has been read
+     * completely, because it carries the checksum and size of the uncompressed data.
+     */
+    private static final class Parts implements Enumeration<InputStream> {
+        private final Iterator<Integer> order = List.of(0, 1, 2).iterator();
+        private final InputStream source;
+        private final CRC32 crc;
+        private final Deflater deflater;
+        private long size;
+
+        Parts(InputStream source, CRC32 crc, Deflater deflater) {
+            this.source = source;
+            this.crc = crc;
+            this.deflater = deflater;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return order.hasNext();
+        }
+
+        @Override
+        public InputStream nextElement() {
+            switch (order.next()) {
+                case 0:
+                    return new ByteArrayInputStream(HEADER);
+                case 1:
+                    return new DeflaterInputStream(new CheckedInputStream(source, crc), deflater) {
+                        @Override
+                        public void close() throws IOException {
+                            size = deflater.getBytesRead();
+                            super.close();
+                            deflater.end();
+                        }
+                    };
+                default:
+                    return new ByteArrayInputStream(trailer());
+            }
+        }
+
+        private byte[] trailer() {
+            long checksum = crc.getValue();
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (checksum >>> (8 * i));
+                trailer[4 + i] = (byte) (size >>> (8 * i));
+            }
+            return trailer;
+        }
+    }
+}
@@ -6,12 +6,23 @@ public class HttpException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    private final int statusCode;
+
     public HttpException(HttpResponse<?> response, long time, String body) {
 
         super(String.format("<- %s %s (%sms)%n<- %s", response.statusCode(), "", time, body));
+        this.statusCode = response.statusCode();
     }
 
     public HttpException(String message) {
         super(message);
+        this.statusCode = -1;
+    }
+
+    /**
+     * @return HTTP status of the failed response, -1 if the failure was not caused by a response.
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 }
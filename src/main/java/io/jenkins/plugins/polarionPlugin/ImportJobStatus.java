@@ -0,0 +1,52 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.Serializable;
+
+/**
+ * Final state of a Polarion import job as reported by the {@code /jobs/{jobId}} resource.
+ */
+public class ImportJobStatus implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String jobId;
+    private final String state;
+    private final String status;
+    private final String message;
+    private final long durationMillis;
+
+    public ImportJobStatus(String jobId, String state, String status, String message, long durationMillis) {
+        this.jobId = jobId;
+        this.state = state;
+        this.status = status;
+        this.message = message;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * @return Polarion status type, e.g. {@code OK}, {@code FAILED} or {@code CANCELLED}.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return "OK".equals(status);
+    }
+}
@@ -0,0 +1,206 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONException;
+
+/**
+ * Pull parser for Polarion JSON:API collection responses. Only the {@code id} of each element of
+ * {@code data} and {@code meta.totalCount} are materialized; everything else is skipped while reading,
+ * so a page is never held in memory as a whole.
+ */
+final class JsonStreams {
+
+    static final class Page {
+        private final List<String> ids = new ArrayList<>();
+        private int totalCount = -1;
+
+        List<String> getIds() {
+            return ids;
+        }
+
+        /**
+         * @return {@code meta.totalCount} of the collection, -1 if the server did not send it.
+         */
+        int getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    private final PushbackReader in;
+
+    private JsonStreams(Reader reader) {
+        this.in = new PushbackReader(reader);
+    }
+
+    static Page readIds(Reader reader) throws IOException {
+        JsonStreams json = new JsonStreams(reader);
+        Page page = new Page();
+        json.expect('{');
+        for (String key = json.nextKey(); key != null; key = json.nextKey()) {
+            if ("data".equals(key)) {
+                json.readDataIds(page.ids);
+            } else if ("meta".equals(key) && json.peek() == '{') {
+                json.expect('{');
+                for (String metaKey = json.nextKey(); metaKey != null; metaKey = json.nextKey()) {
+                    if ("totalCount".equals(metaKey)) {
+                        page.totalCount = Integer.parseInt(json.nextLiteral());
+                    } else {
+                        json.skipValue();
+                    }
+                }
+            } else {
+                json.skipValue();
+            }
+        }
+        return page;
+    }
+
+    private void readDataIds(List<String> ids) throws IOException {
+        if (peek() != '[') {
+            skipValue();
+            return;
+        }
+        expect('[');
+        while (nextElement(']')) {
+            expect('{');
+            for (String key = nextKey(); key != null; key = nextKey()) {
+                if ("id".equals(key) && peek() == '"') {
+                    ids.add(nextString());
+                } else {
+                    skipValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads up to and including the ':' after the next key of the current object.
+     *
+     * @return the key, or {@code null} at the end of the object.
+     */
+    private String nextKey() throws IOException {
+        if (!nextElement('}')) {
+            return null;
+        }
+        String key = nextString();
+        expect(':');
+        return key;
+    }
+
+    /**
+     * Skips a separating comma and reports whether another element follows before {@code close}.
+     */
+    private boolean nextElement(char close) throws IOException {
+        int c = nextClean();
+        if (c == ',') {
+            c = nextClean();
+        }
+        if (c == close) {
+            return false;
+        }
+        in.unread(c);
+        return true;
+    }
+
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{') {
+            expect('{');
+            while (nextKey() != null) {
+                skipValue();
+            }
+        } else if (c == '[') {
+            expect('[');
+            while (nextElement(']')) {
+                skipValue();
+            }
+        } else if (c == '"') {
+            nextString();
+        } else {
+            nextLiteral();
+        }
+    }
+
+    private String nextLiteral() throws IOException {
+        StringBuilder literal = new StringBuilder();
+        int c = nextClean();
+        while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            literal.append((char) c);
+            c = in.read();
+        }
+        if (c != -1) {
+            in.unread(c);
+        }
+        return literal.toString();
+    }
+
+    private String nextString() throws IOException {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        for (int c = in.read(); c != '"'; c = in.read()) {
+            if (c == -1) {
+                throw new JSONException("Unterminated string");
+            }
+            if (c == '\\') {
+                c = in.read();
+                switch (c) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++) {
+                            hex[i] = (char) in.read();
+                        }
+                        value.append((char) Integer.parseInt(new String(hex), 16));
+                        break;
+                    default:
+                        value.append((char) c);
+                }
+            } else {
+                value.append((char) c);
+            }
+        }
+        return value.toString();
+    }
+
+    private int peek() throws IOException {
+        int c = nextClean();
+        if (c != -1) {
+            in.unread(c);
+        }
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = nextClean();
+        if (c != expected) {
+            throw new JSONException(
+                    "Expected '" + expected + "' but found " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+    }
+
+    private int nextClean() throws IOException {
+        int c = in.read();
+        while (c != -1 && Character.isWhitespace(c)) {
+            c = in.read();
+        }
+        return c;
+    }
+}
@@ -0,0 +1,94 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Health of a Polarion server node as seen by {@link PolarionHealthCheck}: whether its last check
+ * succeeded and a moving average of its response time.
+ */
+public final class NodeHealth {
+
+    private static final ConcurrentMap<String, NodeHealth> NODES = new ConcurrentHashMap<>();
+
+    private final String url;
+    private boolean healthy;
+    private long latencyMillis = -1;
+    private long lastChecked;
+    private String lastError;
+
+    private NodeHealth(String url) {
+        this.url = url;
+    }
+
+    static NodeHealth forUrl(String url) {
+        return NODES.computeIfAbsent(url, NodeHealth::new);
+    }
+
+    /**
+     * @return health of every checked node, keyed by URL.
+     */
+    public static Map<String, NodeHealth> all() {
+        return new TreeMap<>(NODES);
+    }
+
+    /**
+     * @return the healthy URL with the lowest latency, {@code fallback} if none of them is known to be healthy.
+     */
+    static String fastest(List<String> urls, String fallback) {
+        String fastest = null;
+        long lowest = Long.MAX_VALUE;
+        for (String url : urls) {
+            NodeHealth node = NODES.get(url);
+            if (node == null) {
+                continue;
+            }
+            synchronized (node) {
+                if (node.healthy && node.latencyMillis < lowest) {
+                    fastest = url;
+                    lowest = node.latencyMillis;
+                }
+            }
+        }
+        return fastest != null ? fastest : fallback;
+    }
+
+    synchronized void succeeded(long millis) {
+        latencyMillis = latencyMillis < 0 ? millis : (latencyMillis * 3 + millis) / 4;
+        healthy = true;
+        lastError = null;
+        lastChecked = System.currentTimeMillis();
+    }
+
+    synchronized void failed(String error) {
+        healthy = false;
+        lastError = error;
+        lastChecked = System.currentTimeMillis();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return moving average of the response time, -1 before the first successful check.
+     */
+    public synchronized long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public synchronized long getLastChecked() {
+        return lastChecked;
+    }
+
+    public synchronized String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,215 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.model.Run;
+import hudson.util.Secret;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test results waiting in the {@link PolarionOutbox}, persisted as {@code entry.xml} next to the
+ * result files. Progress (created test run, uploaded files and chunks) is written back after every
+ * delivery attempt and every uploaded chunk, so a restart never uploads a file twice or creates a
+ * second test run.
+ */
+public final class OutboxEntry {
+
+    private final String id;
+    private final long created;
+    private final String runId;
+    private final String url;
+    private final Secret token;
+    private final String project;
+    private final String testRunIdPrefix;
+    private final String testRunTitle;
+    private final String testRunType;
+    private final String groupId;
+    private final int uploadParallelism;
+    private final boolean compressUploads;
+    private final long maxUploadBytes;
+    private final boolean mergeResults;
+    private final boolean dropOutput;
+    private final int maxFailureMessageLength;
+    private final boolean dropPassedProperties;
+    /** Whether the stored files still need their test case ids; cleared once they were annotated in place. */
+    private boolean annotateTestCaseIds;
+    private String testRunId;
+    /** Stored file name to the name of the result file in the workspace, for files not yet uploaded. */
+    private final Map<String, String> files = new LinkedHashMap<>();
+    /**
+     * Stored file name to the chunks of a split file uploaded so far, by chunk name, with their import
+     * job. {@code null} in entries queued before chunks were tracked.
+     */
+    private Map<String, Map<String, String>> deliveredChunks;
+
+    private final List<String> jobIds = new ArrayList<>();
+    private int attempts;
+    private long lastAttempt;
+    private String lastError;
+
+    OutboxEntry(String id, Run<?, ?> run, PolarionNotifier notifier, PolarionConnection connection, String testRunId) {
+        this.id = id;
+        this.created = System.currentTimeMillis();
+        this.runId = run.getExternalizableId();
+        this.url = connection.getUrl();
+        this.token = connection.getToken();
+        this.project = notifier.getProject();
+        this.testRunIdPrefix = notifier.getTestRunIdPrefix();
+        this.testRunTitle = notifier.getTestRunTitle();
+        this.testRunType = notifier.getTestRunType();
+        this.groupId = notifier.getGroupId();
+        this.uploadParallelism = notifier.getUploadParallelism();
+        this.compressUploads = notifier.isCompressUploads();
+        this.maxUploadBytes = notifier.getMaxUploadSizeMb() * 1024L * 1024L;
+        this.mergeResults = notifier.isMergeResults();
+        this.dropOutput = notifier.isDropOutput();
+        this.maxFailureMessageLength = notifier.getMaxFailureMessageLength();
+        this.dropPassedProperties = notifier.isDropPassedProperties();
+        this.annotateTestCaseIds = notifier.isAnnotateTestCaseIds();
+        this.testRunId = testRunId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return {@link Run#getExternalizableId()} of the build the results belong to.
+     */
+    public String getRunId() {
+        return runId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    Secret getToken() {
+        return token;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    String getTestRunIdPrefix() {
+        return testRunIdPrefix;
+    }
+
+    String getTestRunTitle() {
+        return testRunTitle;
+    }
+
+    String getTestRunType() {
+        return testRunType;
+    }
+
+    String getGroupId() {
+        return groupId;
+    }
+
+    int getUploadParallelism() {
+        return uploadParallelism;
+    }
+
+    boolean isCompressUploads() {
+        return compressUploads;
+    }
+
+    long getMaxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    boolean isMergeResults() {
+        return mergeResults;
+    }
+
+    /**
+     * @return a new slimming of the payloads, as configured on the publisher that queued the results.
+     */
+    XUnitSlimming slimming() {
+        return new XUnitSlimming(dropOutput, maxFailureMessageLength, dropPassedProperties);
+    }
+
+    boolean isAnnotateTestCaseIds() {
+        return annotateTestCaseIds;
+    }
+
+    void testCaseIdsAnnotated() {
+        annotateTestCaseIds = false;
+    }
+
+    /**
+     * @return id of the test run, {@code null} until it was created.
+     */
+    public String getTestRunId() {
+        return testRunId;
+    }
+
+    void setTestRunId(String testRunId) {
+        this.testRunId = testRunId;
+    }
+
+    String getShortTestRunId() {
+        return testRunId.replace(project + "/", "");
+    }
+
+    public Map<String, String> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    void addFile(String storedName, String workspaceName) {
+        files.put(storedName, workspaceName);
+    }
+
+    synchronized void delivered(String storedName, List<String> jobIds) {
+        files.remove(storedName);
+        if (deliveredChunks != null) {
+            deliveredChunks.remove(storedName);
+        }
+        this.jobIds.addAll(jobIds);
+    }
+
+    /**
+     * @return import job by chunk name of the chunks of a split file uploaded so far.
+     */
+    synchronized Map<String, String> getDeliveredChunks(String storedName) {
+        Map<String, String> chunks = deliveredChunks != null ? deliveredChunks.get(storedName) : null;
+        return chunks != null ? new LinkedHashMap<>(chunks) : Collections.emptyMap();
+    }
+
+    synchronized void chunkDelivered(String storedName, String chunkName, String jobId) {
+        if (deliveredChunks == null) {
+            deliveredChunks = new LinkedHashMap<>();
+        }
+        deliveredChunks.computeIfAbsent(storedName, name -> new LinkedHashMap<>()).put(chunkName, jobId);
+    }
+
+    public List<String> getJobIds() {
+        return Collections.unmodifiableList(jobIds);
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getLastAttempt() {
+        return lastAttempt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    void failed(String error) {
+        attempts++;
+        lastAttempt = System.currentTimeMillis();
+        lastError = error;
+    }
+}
@@ -0,0 +1,71 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the same task over many items with a bounded number of concurrent workers, on
+ * {@link PolarionExecutors#ioThreads(String) I/O threads}.
+ * A failing item never stops the others; every failure is reported against its item.
+ */
+final class ParallelTasks {
+
+    interface Task<T, R> {
+        R run(T item) throws Exception;
+    }
+
+    static final class Results<T, R> {
+        private final Map<T, R> succeeded = new LinkedHashMap<>();
+        private final Map<T, Exception> failed = new LinkedHashMap<>();
+
+        public Map<T, R> getSucceeded() {
+            return Collections.unmodifiableMap(succeeded);
+        }
+
+        public Map<T, Exception> getFailed() {
+            return Collections.unmodifiableMap(failed);
+        }
+    }
+
+    private ParallelTasks() {}
+
+    static <T, R> Results<T, R> run(List<T> items, int parallelism, Task<T, R> task) throws InterruptedException {
+        return run(items, parallelism, PolarionExecutors.ioThreads("Polarion worker"), task);
+    }
+
+    static <T, R> Results<T, R> run(List<T> items, int parallelism, ThreadFactory threadFactory, Task<T, R> task)
+            throws InterruptedException {
+        Results<T, R> results = new Results<>();
+        if (items.isEmpty()) {
+            return results;
+        }
+        int threads = Math.max(1, Math.min(parallelism, items.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> task.run(item)));
+            }
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                try {
+                    results.succeeded.put(item, futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    results.failed.put(item, cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,146 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small in-memory cache for Polarion lookups with a time-to-live and least-recently-used eviction.
+ * Concurrent misses for the same key are collapsed into a single load. Failed loads are not cached.
+ */
+public final class PolarionCache<K, V> {
+
+    private static final List<PolarionCache<?, ?>> CACHES = new CopyOnWriteArrayList<>();
+
+    interface Loader<V> {
+        V load() throws IOException, InterruptedException;
+    }
+
+    private static final class Cached<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Cached(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final Map<K, Cached<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    PolarionCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<K, Cached<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        CACHES.add(this);
+    }
+
+    public static List<PolarionCache<?, ?>> all() {
+        return Collections.unmodifiableList(CACHES);
+    }
+
+    V get(K key, Loader<V> loader) throws IOException, InterruptedException {
+        synchronized (entries) {
+            Cached<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            V value = loader.load();
+            synchronized (entries) {
+                entries.put(key, new Cached<>(value, System.nanoTime() + ttlNanos));
+            }
+            mine.complete(value);
+            return value;
+        } catch (IOException | InterruptedException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) throws IOException, InterruptedException {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new InterruptedIOException("Concurrent lookup was interrupted");
+        }
+    }
+
+    void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
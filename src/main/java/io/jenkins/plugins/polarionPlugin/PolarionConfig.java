@@ -0,0 +1,89 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.AbortException;
+import hudson.util.Secret;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Immutable snapshot of the global configuration. It is replaced as a whole when the configuration
+ * is saved, so builds read it without locking or going to disk.
+ */
+public final class PolarionConfig {
+
+    private final PolarionConnection defaultConnection;
+    private final Map<String, PolarionConnection> connections;
+    private final double requestsPerSecond;
+    private final int maxConcurrentRequests;
+
+    PolarionConfig(
+            String url,
+            Secret token,
+            List<PolarionConnection> connections,
+            double requestsPerSecond,
+            int maxConcurrentRequests) {
+        this.defaultConnection = new PolarionConnection("", url, token, null);
+        Map<String, PolarionConnection> byName = new LinkedHashMap<>();
+        for (PolarionConnection connection : connections) {
+            byName.putIfAbsent(connection.getName(), connection);
+        }
+        this.connections = Collections.unmodifiableMap(byName);
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * @param name name of a connection, blank for the default one.
+     * @throws AbortException if there is no connection with that name.
+     */
+    public PolarionConnection connection(String name) throws AbortException {
+        if (StringUtils.isBlank(name)) {
+            return defaultConnection;
+        }
+        PolarionConnection connection = connections.get(name);
+        if (connection == null) {
+            throw new AbortException("No Polarion connection named " + name + " is configured");
+        }
+        return connection;
+    }
+
+    /**
+     * @return the first connection to {@code url}, null if none is configured.
+     */
+    public PolarionConnection connectionForUrl(String url) {
+        for (PolarionConnection connection : getConnections()) {
+            if (connection.getUrl().equals(url)) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the default connection, if configured, followed by the named ones.
+     */
+    public List<PolarionConnection> getConnections() {
+        List<PolarionConnection> all = new ArrayList<>();
+        if (StringUtils.isNotBlank(defaultConnection.getUrl())) {
+            all.add(defaultConnection);
+        }
+        all.addAll(connections.values());
+        return all;
+    }
+
+    public List<String> getConnectionNames() {
+        return new ArrayList<>(connections.keySet());
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+}
@@ -0,0 +1,115 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.json.JSONException;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+
+/**
+ * Named connection to a Polarion server. Besides the main URL, which receives all changes, further
+ * nodes of a Polarion cluster may be listed; read-only requests go to the healthy node with the
+ * lowest latency according to {@link PolarionHealthCheck}.
+ */
+public class PolarionConnection extends AbstractDescribableImpl<PolarionConnection> {
+
+    private final String name;
+    private final String url;
+    private final Secret token;
+    private final String nodes;
+
+    @DataBoundConstructor
+    public PolarionConnection(String name, String url, Secret token, String nodes) {
+        this.name = StringUtils.trimToEmpty(name);
+        this.url = StringUtils.trimToEmpty(url);
+        this.token = token;
+        this.nodes = nodes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Secret getToken() {
+        return token;
+    }
+
+    /**
+     * @return URLs of further cluster nodes serving the same data, one per line.
+     */
+    public String getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the main URL followed by the further nodes.
+     */
+    public List<String> getNodeUrls() {
+        List<String> urls = new ArrayList<>(Collections.singletonList(url));
+        if (nodes != null) {
+            Arrays.stream(nodes.split("[,\\s]+"))
+                    .filter(StringUtils::isNotBlank)
+                    .filter(node -> !urls.contains(node))
+                    .forEach(urls::add);
+        }
+        return urls;
+    }
+
+    /**
+     * @return URL of the healthy node with the lowest latency, the main URL while none is known to be healthy.
+     */
+    public String getReadUrl() {
+        return NodeHealth.fastest(getNodeUrls(), url);
+    }
+
+    /**
+     * @return a connector sending changes to the main URL and reads to {@link #getReadUrl()}.
+     */
+    PolarionConnector connector() {
+        PolarionConnector connector = new PolarionConnector(url, token.getPlainText());
+        connector.setReadUrl(getReadUrl());
+        return connector;
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<PolarionConnection> {
+
+        @Override
+        public String getDisplayName() {
+            return "Polarion server";
+        }
+
+        public FormValidation doCheckName(@QueryParameter String value) {
+            return StringUtils.isBlank(value) ? FormValidation.error("A name is required") : FormValidation.ok();
+        }
+
+        @POST
+        public FormValidation doTestConnection(
+                @QueryParameter("url") String url, @QueryParameter("token") String token) {
+            Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            try {
+                PolarionConnector polarionConnector =
+                        new PolarionConnector(url, Secret.fromString(token).getPlainText());
+                polarionConnector.connect();
+                return FormValidation.ok("Successful Connection");
+            } catch (JSONException | IOException | HttpException | InterruptedException e) {
+                return FormValidation.error("Connection error : " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,20 +1,49 @@
 package io.jenkins.plugins.polarionPlugin;
 
-import hudson.util.ListBoxModel;
-import java.io.BufferedInputStream;
+import io.jenkins.plugins.polarionPlugin.ConnectorMetrics.Endpoint;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -22,135 +51,485 @@ import org.json.JSONObject;
 
 public class PolarionConnector {
 
+    private static final long JOB_POLL_INITIAL_DELAY_MS = 1000;
+    private static final long JOB_POLL_MAX_DELAY_MS = 30_000;
+    private static final long JOB_POLL_TIMEOUT_MS = TimeUnit.HOURS.toMillis(2);
+    private static final int JOB_POLL_MAX_ERRORS = 5;
+    private static final Set<String> GZIP_REJECTED = ConcurrentHashMap.newKeySet();
+
+    static final int MAX_RETRIES = Integer.getInteger(PolarionConnector.class.getName() + ".maxRetries", 3);
+    private static final long RETRY_INITIAL_DELAY_MS = 1000;
+    private static final long RETRY_MAX_DELAY_MS = 30_000;
+    private static final long RETRY_AFTER_MAX_MS = 120_000;
+    private static final AtomicLong RETRIES = new AtomicLong();
+    private static final long THROTTLE_RETRY_MS = 200;
+    private static final int PROJECTS_PAGE_SIZE = 100;
+    private static final int PROJECTS_PAGES_IN_FLIGHT = 4;
+    private static final boolean IDEMPOTENT = true;
+    private static final boolean NOT_IDEMPOTENT = false;
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final PolarionCache<String, Boolean> PROJECT_CHECKS =
+            new PolarionCache<>("Project checks", 1000, Duration.ofMinutes(5));
+    private static final PolarionCache<String, Boolean> WORK_ITEM_CHECKS =
+            new PolarionCache<>("Work item checks", 1000, Duration.ofMinutes(5));
+    private static final PolarionCache<String, List<String>> PROJECT_LISTS =
+            new PolarionCache<>("Project lists", 100, Duration.ofMinutes(5));
+    private static final ResourceValidators<Boolean> CHECK_VALIDATORS =
+            new ResourceValidators<>("Connection, project and work item checks", 1000);
+    private static final ResourceValidators<JsonStreams.Page> PROJECT_PAGE_VALIDATORS =
+            new ResourceValidators<>("Project list pages", 1000);
+
     private final HttpClient client;
     private String polarionRestBaseUrl;
+    private String readBaseUrl;
     private String authorization;
+    private boolean compressUploads;
+    private PrintStream logger;
+    // replaces the throttle of this JVM for the main server, null to use it
+    private PolarionThrottle throttle;
+    private ConnectorMetrics.Recorder recorder = ConnectorMetrics.LOCAL;
+    private boolean hasDeadline;
+    private long deadline;
 
     public PolarionConnector(String url, String token) {
-        this.client =
-                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(600)).build();
-        this.polarionRestBaseUrl = url.endsWith("/") ? url + "rest/v1" : url + "/rest/v1";
+        this.client = PolarionHttpClients.forUrl(url);
+        this.polarionRestBaseUrl = restBaseUrl(url);
+        this.readBaseUrl = polarionRestBaseUrl;
         this.authorization = "Bearer " + token;
     }
 
-    public void connect() throws IOException, HttpException, InterruptedException {
+    private static String restBaseUrl(String url) {
+        return url.endsWith("/") ? url + "rest/v1" : url + "/rest/v1";
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(this.polarionRestBaseUrl + "/projects"))
-                .header("Content-Type", "application/octet-stream")
-                .header("Accept", "application/json")
-                .header("Authorization", this.authorization)
-                .GET()
-                .build();
+    /**
+     * Sends read-only requests about projects, work items and test records to another node of the
+     * Polarion cluster. Changes and import jobs stay on the main URL.
+     */
+    public void setReadUrl(String url) {
+        this.readBaseUrl = restBaseUrl(url);
+    }
 
-        long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    /**
+     * Sends result uploads gzip-compressed ({@code Content-Encoding: gzip}).
+     */
+    public void setCompressUploads(boolean compressUploads) {
+        this.compressUploads = compressUploads;
+    }
 
-        if (response.statusCode() != 200) {
-            throw new HttpException(response, time, response.body().toString());
+    /**
+     * Retries and circuit breaker decisions are reported to this stream, usually the build log.
+     */
+    public void setLogger(PrintStream logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Overrides the throttle of this JVM for the main server, e.g. with a proxy of the controller's
+     * throttle on an agent. Requests to other nodes keep the throttle of their node.
+     */
+    public void setThrottle(PolarionThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Overrides where exchanges are recorded, e.g. with a proxy of the controller's recorder on an agent.
+     */
+    public void setRecorder(ConnectorMetrics.Recorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Limits the requests of this connector to {@code timeout} from now, null for no limit. Every request
+     * is sent with the time left as its timeout, so one still running at the deadline is aborted by the
+     * HTTP client, and none is retried after it.
+     */
+    public void setTimeout(Duration timeout) {
+        this.hasDeadline = timeout != null;
+        this.deadline = timeout != null ? System.nanoTime() + timeout.toNanos() : 0;
+    }
+
+    private boolean isPastDeadline() {
+        return hasDeadline && deadline - System.nanoTime() <= 0;
+    }
+
+    private void checkDeadline(HttpRequest request) throws HttpTimeoutException {
+        if (isPastDeadline()) {
+            throw timedOut(request);
         }
     }
 
-    public void checkProject(String projectID) throws IOException, HttpException, InterruptedException {
+    private static HttpTimeoutException timedOut(HttpRequest request) {
+        return new HttpTimeoutException(String.format(
+                "Polarion %s %s not completed within the time limit", request.method(), request.uri().getPath()));
+    }
+
+    /**
+     * @return {@code request} with the time left until the deadline as its timeout, unless it already
+     *     has a shorter one. Requests cannot be copied with a builder before Java 16, so this is done by hand.
+     */
+    private HttpRequest withRemainingTimeout(HttpRequest request) {
+        if (!hasDeadline) {
+            return request;
+        }
+        Duration remaining = Duration.ofNanos(Math.max(1, deadline - System.nanoTime()));
+        if (request.timeout().isPresent() && request.timeout().get().compareTo(remaining) <= 0) {
+            return request;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.uri())
+                .expectContinue(request.expectContinue())
+                .timeout(remaining)
+                .method(request.method(), request.bodyPublisher().orElse(BodyPublishers.noBody()));
+        request.version().ifPresent(builder::version);
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        return builder.build();
+    }
+
+    /**
+     * @return number of requests retried by all connectors since startup.
+     */
+    public static long getRetryCount() {
+        return RETRIES.get();
+    }
+
+    /**
+     * Sends a single small read request, bypassing retries, the throttle and the circuit breaker,
+     * and discards the response body.
+     *
+     * @return response time in milliseconds.
+     */
+    public long ping() throws IOException, HttpException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(this.polarionRestBaseUrl + "/projects/" + projectID))
-                .header("Content-Type", "application/octet-stream")
+                .uri(URI.create(this.polarionRestBaseUrl + "/projects?fields%5Bprojects%5D=id&page%5Bsize%5D=1"))
                 .header("Accept", "application/json")
                 .header("Authorization", this.authorization)
+                .timeout(PING_TIMEOUT)
                 .GET()
                 .build();
-
         long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
-
         if (response.statusCode() != 200) {
-            throw new HttpException(response, time, response.body().toString());
+            throw new HttpException(response, time, "");
         }
+        return time;
+    }
+
+    public void connect() throws IOException, HttpException, InterruptedException {
+        check(Endpoint.CONNECT, this.polarionRestBaseUrl + "/projects", cacheKey());
+    }
+
+    /**
+     * Successful checks are cached for a few minutes, so repeated form validations do not reach the server.
+     */
+    public void checkProject(String projectID) throws IOException, HttpException, InterruptedException {
+        PROJECT_CHECKS.get(cacheKey(projectID), () -> {
+            fetchProject(projectID);
+            return Boolean.TRUE;
+        });
+    }
+
+    private void fetchProject(String projectID) throws IOException, HttpException, InterruptedException {
+        check(Endpoint.CHECK_PROJECT, this.readBaseUrl + "/projects/" + projectID, cacheKey(projectID));
     }
 
     public void checkWorkItem(String projectID, String workItemID)
             throws IOException, HttpException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(this.polarionRestBaseUrl + "/projects/" + projectID + "/workitems/" + workItemID))
-                .header("Content-Type", "application/octet-stream")
-                .header("Accept", "application/json")
-                .header("Authorization", this.authorization)
+        WORK_ITEM_CHECKS.get(cacheKey(projectID, workItemID), () -> {
+            fetchWorkItem(projectID, workItemID);
+            return Boolean.TRUE;
+        });
+    }
+
+    private void fetchWorkItem(String projectID, String workItemID)
+            throws IOException, HttpException, InterruptedException {
+        check(
+                Endpoint.CHECK_WORK_ITEM,
+                this.readBaseUrl + "/projects/" + projectID + "/workitems/" + workItemID,
+                cacheKey(projectID, workItemID));
+    }
+
+    /**
+     * Checks that a resource can be read. The request is conditional on what was seen before, so an
+     * unchanged resource is confirmed with {@code 304 Not Modified}, and the body is only read for errors.
+     */
+    private void check(Endpoint endpoint, String uri, String key)
+            throws IOException, HttpException, InterruptedException {
+        HttpRequest request = CHECK_VALIDATORS
+                .conditional(
+                        key,
+                        HttpRequest.newBuilder()
+                                .uri(URI.create(uri))
+                                .header("Accept", "application/json")
+                                .header("Authorization", this.authorization))
                 .GET()
                 .build();
 
         long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(endpoint, request, errorBody(), IDEMPOTENT);
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
-        if (response.statusCode() != 200) {
-            throw new HttpException(response, time, response.body().toString());
+        if (response.statusCode() == 304) {
+            CHECK_VALIDATORS.notModified(key);
+        } else if (response.statusCode() == 200) {
+            CHECK_VALIDATORS.modified(key, response, Boolean.TRUE);
+        } else {
+            throw new HttpException(response, time, response.body());
         }
     }
 
-    public void getProjectsList(String url, String token, ListBoxModel items, String selectedId)
-            throws IOException, JSONException, HttpException, InterruptedException {
+    /**
+     * Reads the body of error responses only, for the exception; other bodies are discarded as they arrive.
+     */
+    private static HttpResponse.BodyHandler<String> errorBody() {
+        return info -> info.statusCode() >= 400
+                ? HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8)
+                : HttpResponse.BodySubscribers.replacing("");
+    }
 
-        this.polarionRestBaseUrl = url;
-        this.authorization = "Bearer " + token;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(polarionRestBaseUrl + "/projects"))
-                .header("Content-Type", "application/octet-stream")
-                .header("Accept", "application/json")
-                .header("Authorization", authorization)
+    /**
+     * @return ids of all projects visible with the configured token, cached for a few minutes.
+     */
+    public List<String> getProjectIds() throws IOException, JSONException, HttpException, InterruptedException {
+        return PROJECT_LISTS.get(cacheKey(), this::fetchProjectIds);
+    }
+
+    /**
+     * Fetches the project list page by page with a sparse {@code id} field set. The first page tells
+     * the total count; the remaining pages are then requested a few at a time and parsed in order while
+     * later pages are still arriving. Each page is parsed as a stream so only the ids are kept.
+     */
+    private List<String> fetchProjectIds() throws IOException, JSONException, HttpException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<InputStream> first = send(
+                Endpoint.LIST_PROJECTS, projectsPageRequest(1), HttpResponse.BodyHandlers.ofInputStream(), IDEMPOTENT);
+        JsonStreams.Page firstPage = readProjectsPage(first, 1, start);
+        List<String> ids = new ArrayList<>(firstPage.getIds());
+
+        int total = firstPage.getTotalCount();
+        if (total < 0) {
+            // no total count, fall back to fetching pages one after another
+            JsonStreams.Page page = firstPage;
+            for (int number = 2; page.getIds().size() == PROJECTS_PAGE_SIZE; number++) {
+                long pageStart = System.nanoTime();
+                page = readProjectsPage(
+                        send(
+                                Endpoint.LIST_PROJECTS,
+                                projectsPageRequest(number),
+                                HttpResponse.BodyHandlers.ofInputStream(),
+                                IDEMPOTENT),
+                        number,
+                        pageStart);
+                ids.addAll(page.getIds());
+            }
+            return Collections.unmodifiableList(ids);
+        }
+
+        int pages = (total + PROJECTS_PAGE_SIZE - 1) / PROJECTS_PAGE_SIZE;
+        long pagesStart = System.nanoTime();
+        Deque<CompletableFuture<HttpResponse<InputStream>>> pending = new ArrayDeque<>();
+        int next = 2;
+        try {
+            for (int number = 2; number <= pages; number++) {
+                while (next <= pages && pending.size() < PROJECTS_PAGES_IN_FLIGHT) {
+                    pending.add(sendAsync(
+                            Endpoint.LIST_PROJECTS,
+                            projectsPageRequest(next++),
+                            HttpResponse.BodyHandlers.ofInputStream()));
+                }
+                ids.addAll(readProjectsPage(pending.poll().get(), number, pagesStart).getIds());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (CompletableFuture<HttpResponse<InputStream>> page : pending) {
+                page.thenAccept(response -> closeQuietly(response.body()));
+            }
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @return request for a page of the project list, conditional on the page read before.
+     */
+    private HttpRequest projectsPageRequest(int number) {
+        return PROJECT_PAGE_VALIDATORS
+                .conditional(
+                        cacheKey("projects", String.valueOf(number)),
+                        HttpRequest.newBuilder()
+                                .uri(URI.create(readBaseUrl + "/projects?fields%5Bprojects%5D=id&page%5Bsize%5D="
+                                        + PROJECTS_PAGE_SIZE + "&page%5Bnumber%5D=" + number))
+                                .header("Accept", "application/json")
+                                .header("Authorization", authorization))
                 .GET()
                 .build();
+    }
 
-        long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    private JsonStreams.Page readProjectsPage(HttpResponse<InputStream> response, int number, long start)
+            throws IOException, HttpException, InterruptedException {
+        String key = cacheKey("projects", String.valueOf(number));
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) {
+                JsonStreams.Page page = PROJECT_PAGE_VALIDATORS.notModified(key);
+                if (page != null) {
+                    return page;
+                }
+                // evicted meanwhile, read the page again in full
+                return readProjectsPage(
+                        send(
+                                Endpoint.LIST_PROJECTS,
+                                projectsPageRequest(number),
+                                HttpResponse.BodyHandlers.ofInputStream(),
+                                IDEMPOTENT),
+                        number,
+                        start);
+            }
+            if (response.statusCode() != 200) {
+                long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                throw new HttpException(response, time, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            return PROJECT_PAGE_VALIDATORS.modified(
+                    key, response, JsonStreams.readIds(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        }
+    }
 
-        if (response.statusCode() != 200) {
-            throw new HttpException(response, time, response.body().toString());
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing left to read
         }
+    }
 
-        JSONObject obj = new JSONObject(response.body().toString());
-        JSONArray projectNodes = obj.getJSONArray("data");
-        for (int i = 0; i < projectNodes.length(); i++) {
-            String name = projectNodes.getJSONObject(i).getString("id");
-            String idStr = projectNodes.getJSONObject(i).getString("id");
+    /**
+     * Cache keys include a SHA-256 digest of the token, so a lookup made with one token is never
+     * answered for another one, and the token itself is not kept in the cache.
+     */
+    private String cacheKey(String... parts) {
+        StringBuilder key = new StringBuilder(polarionRestBaseUrl).append('#').append(sha256(authorization));
+        for (String part : parts) {
+            key.append('/').append(part);
+        }
+        return key.toString();
+    }
 
-            items.add(new ListBoxModel.Option(name, idStr, idStr.equals(selectedId)));
+    private static String sha256(String text) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
         }
+        return hex.toString();
     }
 
     public String publishResults(File file, String projectId, String testRunId)
             throws IOException, HttpException, InterruptedException {
 
-        String xunitImportEndPointUrl = this.polarionRestBaseUrl + "/projects/" + projectId + "/testruns/" + testRunId
-                + "/actions/importXUnitTestResults";
+        Path path = file.toPath();
+        if (!Files.isReadable(path)) {
+            throw new FileNotFoundException(file.getAbsolutePath());
+        }
+        return publishResults(
+                BodyPublishers.ofFile(path),
+                () -> {
+                    try {
+                        return Files.newInputStream(path);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                projectId,
+                testRunId);
+    }
 
-        FileInputStream ins = null;
-        Supplier<? extends InputStream> streamSupplier = null;
+    /**
+     * Imports a result payload that is produced on the fly, e.g. several result files merged into one
+     * document. The supplier is asked for a fresh stream every time the request body is (re)sent.
+     */
+    public String publishResults(Supplier<? extends InputStream> payload, String projectId, String testRunId)
+            throws IOException, HttpException, InterruptedException {
+        // streams left unread by a cancelled request would keep their producers blocked
+        List<InputStream> opened = new CopyOnWriteArrayList<>();
+        Supplier<InputStream> tracked = () -> {
+            InputStream in = payload.get();
+            opened.add(in);
+            return in;
+        };
         try {
-            ins = new FileInputStream(file); // FileNotFoundException extends IOException
-            BufferedInputStream buf_ins = new BufferedInputStream(ins);
-            streamSupplier = new Supplier<BufferedInputStream>() {
-                @Override
-                public BufferedInputStream get() {
-                    return buf_ins;
-                }
-            };
+            return publishResults(BodyPublishers.ofInputStream(tracked), tracked, projectId, testRunId);
+        } finally {
+            opened.forEach(PolarionConnector::closeQuietly);
+        }
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Sends {@code plain} as is, or the gzip-compressed {@code source} when compression is enabled and
+     * the server has not rejected it before. A server answering 415 to compressed uploads is remembered
+     * and receives uncompressed payloads from then on.
+     */
+    private String publishResults(
+            HttpRequest.BodyPublisher plain,
+            Supplier<? extends InputStream> source,
+            String projectId,
+            String testRunId)
+            throws IOException, HttpException, InterruptedException {
+        String server = PolarionHttpClients.serverKey(this.polarionRestBaseUrl);
+        if (compressUploads && !GZIP_REJECTED.contains(server)) {
+            try {
+                return sendImport(
+                        BodyPublishers.ofInputStream(() -> new GzipCompressingInputStream(source.get())),
+                        true,
+                        projectId,
+                        testRunId);
+            } catch (HttpException e) {
+                if (e.getStatusCode() != 415) {
+                    throw e;
+                }
+                GZIP_REJECTED.add(server);
+            }
         }
-        HttpRequest request = HttpRequest.newBuilder()
+        return sendImport(plain, false, projectId, testRunId);
+    }
+
+    private String sendImport(HttpRequest.BodyPublisher body, boolean gzip, String projectId, String testRunId)
+            throws IOException, HttpException, InterruptedException {
+
+        String xunitImportEndPointUrl = this.polarionRestBaseUrl + "/projects/" + projectId + "/testruns/" + testRunId
+                + "/actions/importXUnitTestResults";
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(xunitImportEndPointUrl))
                 .header("Content-Type", "application/octet-stream")
                 .header("Accept", "application/json")
-                .header("Authorization", this.authorization)
-                .POST(HttpRequest.BodyPublishers.ofInputStream(streamSupplier))
-                .build();
+                .header("Authorization", this.authorization);
+        if (gzip) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        AbortableBodyPublisher abortable = new AbortableBodyPublisher(body);
+        HttpRequest request = builder.POST(new CountingBodyPublisher(abortable)).build();
 
         long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response;
+        try {
+            response = send(Endpoint.IMPORT_RESULTS, request, HttpResponse.BodyHandlers.ofString(), NOT_IDEMPOTENT);
+        } catch (InterruptedException | HttpTimeoutException e) {
+            // stops the upload on every Java version, so an aborted build's results are not imported
+            abortable.abort(e);
+            throw e;
+        }
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
         if (response.statusCode() != 202) {
@@ -165,8 +544,30 @@ public class PolarionConnector {
     public String createNewTestRun(
             String projectId, String testRunIdPrefix, String testRunTitle, String testRunType, String groupId)
             throws IOException, InterruptedException {
+        return createTestRun(projectId, newTestRunId(testRunIdPrefix), testRunTitle, testRunType, groupId);
+    }
+
+    /**
+     * @return a test run id made of the prefix, the current time and a random suffix, so that test
+     *     runs created in the same millisecond by different builds or agents do not collide.
+     */
+    static String newTestRunId(String testRunIdPrefix) {
+        return testRunIdPrefix
+                + "-"
+                + new SimpleDateFormat("dd-MM-yyyy-HH-mm-ss-SS").format(new Date())
+                + "-"
+                + Long.toString(ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36), 36);
+    }
+
+    /**
+     * Creates a test run with the given id.
+     *
+     * @return the id of the test run, including the project prefix.
+     */
+    public String createTestRun(
+            String projectId, String testRunId, String testRunTitle, String testRunType, String groupId)
+            throws IOException, InterruptedException {
         String testRunEndPointUrl = this.polarionRestBaseUrl + "/projects/" + projectId + "/testruns";
-        String testRunId = testRunIdPrefix + "-" + new SimpleDateFormat("dd-MM-yyyy-HH-mm-ss-SS").format(new Date());
         String testRunJson = String.format(
                 "{\"data\": [%s]}", singleTestRunWithAllFields(testRunId, testRunTitle, testRunType, groupId));
 
@@ -179,7 +580,8 @@ public class PolarionConnector {
                 .build();
 
         long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response =
+                send(Endpoint.CREATE_TEST_RUN, request, HttpResponse.BodyHandlers.ofString(), NOT_IDEMPOTENT);
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
         if (response.statusCode() != 201) {
@@ -191,6 +593,70 @@ public class PolarionConnector {
         return data.getString("id");
     }
 
+    /**
+     * @return ids (without project prefix) of all work items of the project matching the Polarion query.
+     */
+    public List<String> queryWorkItemIds(String projectId, String query)
+            throws IOException, HttpException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        forEachWorkItem(projectId, query, "id", (id, workItem) -> ids.add(id));
+        return ids;
+    }
+
+    /**
+     * Pages through the work items of the project matching the Polarion query and passes the id
+     * (without project prefix) and title of each to {@code consumer}.
+     */
+    public void forEachWorkItemTitle(String projectId, String query, BiConsumer<String, String> consumer)
+            throws IOException, HttpException, InterruptedException {
+        forEachWorkItem(projectId, query, "title", (id, workItem) -> {
+            JSONObject attributes = workItem.optJSONObject("attributes");
+            String title = attributes != null ? attributes.optString("title", null) : null;
+            if (title != null) {
+                consumer.accept(id, title);
+            }
+        });
+    }
+
+    /**
+     * Pages through the work items of the project matching the Polarion query, requesting only
+     * {@code fields}, and passes the id (without project prefix) and JSON of each to {@code consumer}.
+     */
+    private void forEachWorkItem(
+            String projectId, String query, String fields, BiConsumer<String, JSONObject> consumer)
+            throws IOException, HttpException, InterruptedException {
+        int pageSize = 100;
+        for (int page = 1; ; page++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(this.readBaseUrl + "/projects/" + projectId + "/workitems?query="
+                            + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                            + "&fields%5Bworkitems%5D=" + URLEncoder.encode(fields, StandardCharsets.UTF_8)
+                            + "&page%5Bsize%5D=" + pageSize + "&page%5Bnumber%5D=" + page))
+                    .header("Accept", "application/json")
+                    .header("Authorization", this.authorization)
+                    .GET()
+                    .build();
+
+            long start = System.nanoTime();
+            HttpResponse<String> response =
+                    send(Endpoint.QUERY_WORK_ITEMS, request, HttpResponse.BodyHandlers.ofString(), IDEMPOTENT);
+            long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if (response.statusCode() != 200) {
+                throw new HttpException(response, time, response.body());
+            }
+
+            JSONArray data = new JSONObject(response.body()).getJSONArray("data");
+            for (int i = 0; i < data.length(); i++) {
+                JSONObject workItem = data.getJSONObject(i);
+                consumer.accept(workItem.getString("id").replace(projectId + "/", ""), workItem);
+            }
+            if (data.length() < pageSize) {
+                return;
+            }
+        }
+    }
+
     public void updateWorkItemWithWorkFlow(String projectId, String workitemId, String workflow)
             throws IOException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder()
@@ -205,7 +671,7 @@ public class PolarionConnector {
                 .build();
 
         long start = System.nanoTime();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(Endpoint.WORKFLOW_UPDATE, request, errorBody(), NOT_IDEMPOTENT);
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 
         if (response.statusCode() != 204) {
@@ -213,7 +679,333 @@ public class PolarionConnector {
         }
     }
 
-    private String singleTestRunWithAllFields(String testRunId, String testTitle, String testRunType, String groupId) {
+    /**
+     * Polls the Polarion job resource until the import job has finished. Polling backs off
+     * exponentially with jitter and runs on the shared scheduler, so no thread waits for the job.
+     */
+    public CompletableFuture<ImportJobStatus> trackImportJob(String jobId) {
+        CompletableFuture<ImportJobStatus> result = new CompletableFuture<>();
+        pollJob(jobId, 0, 0, System.nanoTime(), result);
+        return result;
+    }
+
+    private void pollJob(
+            String jobId, int attempt, int errors, long started, CompletableFuture<ImportJobStatus> result) {
+        if (isPastDeadline()) {
+            result.completeExceptionally(new HttpTimeoutException(
+                    String.format("Job %s not finished within the time limit", jobId)));
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(this.polarionRestBaseUrl + "/jobs/" + jobId))
+                .header("Accept", "application/json")
+                .header("Authorization", this.authorization)
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        sendAsync(Endpoint.JOB_STATUS, request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    try {
+                        if (error != null || response.statusCode() >= 500) {
+                            if (errors + 1 >= JOB_POLL_MAX_ERRORS) {
+                                result.completeExceptionally(
+                                        error != null ? error : new HttpException(response, time, response.body()));
+                                return;
+                            }
+                            schedulePoll(jobId, attempt + 1, errors + 1, started, result);
+                            return;
+                        }
+                        if (response.statusCode() != 200) {
+                            result.completeExceptionally(new HttpException(response, time, response.body()));
+                            return;
+                        }
+                        JSONObject attributes =
+                                new JSONObject(response.body()).getJSONObject("data").getJSONObject("attributes");
+                        String state = attributes.optString("state", "");
+                        JSONObject status = attributes.optJSONObject("status");
+                        if ("FINISHED".equals(state) || "ABORTED".equals(state) || "CANCELLED".equals(state)) {
+                            result.complete(new ImportJobStatus(
+                                    jobId,
+                                    state,
+                                    status == null ? "" : status.optString("type", ""),
+                                    status == null ? "" : status.optString("message", ""),
+                                    elapsed));
+                        } else if (elapsed > JOB_POLL_TIMEOUT_MS) {
+                            result.completeExceptionally(new HttpException(
+                                    String.format("Job %s still %s after %sms", jobId, state, elapsed)));
+                        } else {
+                            schedulePoll(jobId, attempt + 1, 0, started, result);
+                        }
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+    }
+
+    private void schedulePoll(
+            String jobId, int attempt, int errors, long started, CompletableFuture<ImportJobStatus> result) {
+        long backoff = Math.min(JOB_POLL_MAX_DELAY_MS, JOB_POLL_INITIAL_DELAY_MS << Math.min(attempt, 16));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        PolarionExecutors.scheduler()
+                .schedule(() -> pollJob(jobId, attempt, errors, started, result), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return number of test records in the given test run.
+     */
+    public CompletableFuture<Integer> countTestRecords(String projectId, String testRunId) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(this.readBaseUrl + "/projects/" + projectId + "/testruns/" + testRunId
+                        + "/testrecords?page%5Bsize%5D=1"))
+                .header("Accept", "application/json")
+                .header("Authorization", this.authorization)
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        return sendAsync(Endpoint.COUNT_TEST_RECORDS, request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (response.statusCode() != 200) {
+                        throw new HttpException(response, time, response.body());
+                    }
+                    JSONObject meta = new JSONObject(response.body()).optJSONObject("meta");
+                    return meta == null ? -1 : meta.optInt("totalCount", -1);
+                });
+    }
+
+    /**
+     * Sends a request through the server's circuit breaker and retries it when that is safe:
+     * throttled (429) and unconnected requests are always retried, other server errors and I/O
+     * failures only for idempotent requests. {@code Retry-After} is honored, otherwise the delay
+     * grows exponentially with jitter. The last response is returned as is for the caller to check.
+     */
+    private <T> HttpResponse<T> send(
+            Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler, boolean idempotent)
+            throws IOException, InterruptedException {
+        CircuitBreaker breaker = breakerFor(request);
+        for (int attempt = 1; ; attempt++) {
+            checkDeadline(request);
+            breaker.acquire();
+            HttpResponse<T> response;
+            try {
+                response = sendOnce(endpoint, withRemainingTimeout(request), handler);
+            } catch (IOException e) {
+                breaker.onFailure();
+                boolean notSent = e instanceof ConnectException || e instanceof HttpConnectTimeoutException;
+                if (attempt > MAX_RETRIES || !(idempotent || notSent) || isPastDeadline()) {
+                    throw e;
+                }
+                retryAfter(request, attempt, backoff(attempt), e.toString());
+                continue;
+            } catch (InterruptedException | RuntimeException e) {
+                breaker.release();
+                throw e;
+            }
+
+            int status = response.statusCode();
+            if (status == 429 || status >= 500) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            boolean retryable = status == 429 || (idempotent && (status == 502 || status == 503 || status == 504));
+            if (!retryable || attempt > MAX_RETRIES) {
+                return response;
+            }
+            if (response.body() instanceof InputStream) {
+                // an unread streamed body would hold on to its connection while waiting for the retry
+                closeQuietly((InputStream) response.body());
+            }
+            retryAfter(request, attempt, retryAfterHeader(response, backoff(attempt)), "status " + status);
+        }
+    }
+
+    private void retryAfter(HttpRequest request, int attempt, long delay, String reason)
+            throws IOException, InterruptedException {
+        if (hasDeadline && TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) < delay) {
+            throw new HttpTimeoutException(String.format(
+                    "Polarion %s %s failed with %s, no time left for a retry",
+                    request.method(), request.uri().getPath(), reason));
+        }
+        RETRIES.incrementAndGet();
+        if (logger != null) {
+            logger.println(String.format(
+                    "Polarion %s %s failed with %s, retry %s of %s in %sms",
+                    request.method(), request.uri().getPath(), reason, attempt, MAX_RETRIES, delay));
+        }
+        Thread.sleep(delay);
+    }
+
+    private static long backoff(int attempt) {
+        long backoff = Math.min(RETRY_MAX_DELAY_MS, RETRY_INITIAL_DELAY_MS << Math.min(attempt - 1, 16));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * @return delay requested by a {@code Retry-After} header (seconds or HTTP date), capped, or {@code fallback}.
+     */
+    private static long retryAfterHeader(HttpResponse<?> response, long fallback) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return fallback;
+        }
+        long delay;
+        try {
+            delay = TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                delay = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                                .toInstant()
+                                .toEpochMilli()
+                        - System.currentTimeMillis();
+            } catch (DateTimeParseException ex) {
+                return fallback;
+            }
+        }
+        return Math.max(0, Math.min(delay, RETRY_AFTER_MAX_MS));
+    }
+
+    private <T> HttpResponse<T> sendOnce(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        PolarionThrottle throttle = throttleFor(request);
+        throttle.acquire();
+        long start = ConnectorMetrics.of(endpoint).started();
+        HttpResponse<T> response = null;
+        try {
+            response = await(request, client.sendAsync(request, handler));
+            return response;
+        } finally {
+            record(endpoint, start, request, response);
+            throttle.release();
+        }
+    }
+
+    /**
+     * Requests are admitted per node they are sent to, so reads from another node of the cluster do
+     * not count against the main server.
+     */
+    private PolarionThrottle throttleFor(HttpRequest request) {
+        String server = PolarionHttpClients.serverKey(request.uri().toString());
+        if (throttle != null && server.equals(PolarionHttpClients.serverKey(polarionRestBaseUrl))) {
+            return throttle;
+        }
+        return RequestThrottle.forUrl(server);
+    }
+
+    private static CircuitBreaker breakerFor(HttpRequest request) {
+        return CircuitBreaker.forServer(PolarionHttpClients.serverKey(request.uri().toString()));
+    }
+
+    /**
+     * @param response null if the exchange ended without one.
+     */
+    private void record(Endpoint endpoint, long start, HttpRequest request, HttpResponse<?> response) {
+        long millis = ConnectorMetrics.of(endpoint).finished(start);
+        try {
+            recorder.record(
+                    endpoint,
+                    response != null ? response.statusCode() : -1,
+                    millis,
+                    ConnectorMetrics.bytesSent(request),
+                    response != null ? ConnectorMetrics.bytesReceived(response) : 0);
+        } catch (RuntimeException e) {
+            // figures are best effort, e.g. the channel to the controller may be gone already
+        }
+    }
+
+    /**
+     * Waits for the exchange until the deadline. When the deadline passes or the thread is
+     * interrupted, e.g. because the build was aborted, the exchange is cancelled right away. Before
+     * Java 16 cancelling does not abort it; the request timeout does, and uploads fail their body.
+     */
+    private <T> HttpResponse<T> await(HttpRequest request, CompletableFuture<HttpResponse<T>> exchange)
+            throws IOException, InterruptedException {
+        try {
+            return hasDeadline ? exchange.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : exchange.get();
+        } catch (TimeoutException e) {
+            throw timedOut(request);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * Asynchronous requests go through the throttle and the circuit breaker as well; retrying is left
+     * to the caller. No thread waits for a throttle permit, the attempt is rescheduled instead. The
+     * result fails with a {@link HttpTimeoutException} at the deadline.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        if (hasDeadline) {
+            ScheduledFuture<?> timer = PolarionExecutors.scheduler()
+                    .schedule(
+                            () -> result.completeExceptionally(timedOut(request)),
+                            Math.max(0, deadline - System.nanoTime()),
+                            TimeUnit.NANOSECONDS);
+            result.whenComplete((response, error) -> timer.cancel(false));
+        }
+        sendAsync(endpoint, request, handler, result);
+        return result;
+    }
+
+    private <T> void sendAsync(
+            Endpoint endpoint,
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> handler,
+            CompletableFuture<HttpResponse<T>> result) {
+        if (result.isDone()) {
+            return;
+        }
+        PolarionThrottle throttle = throttleFor(request);
+        if (!throttle.tryAcquire()) {
+            PolarionExecutors.scheduler()
+                    .schedule(
+                            () -> sendAsync(endpoint, request, handler, result),
+                            THROTTLE_RETRY_MS,
+                            TimeUnit.MILLISECONDS);
+            return;
+        }
+        CircuitBreaker breaker = breakerFor(request);
+        try {
+            breaker.acquire();
+        } catch (HttpException e) {
+            throttle.release();
+            result.completeExceptionally(e);
+            return;
+        }
+        long start = ConnectorMetrics.of(endpoint).started();
+        client.sendAsync(withRemainingTimeout(request), handler).whenComplete((response, error) -> {
+            throttle.release();
+            record(endpoint, start, request, response);
+            if (error != null || response.statusCode() == 429 || response.statusCode() >= 500) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (!result.complete(response) && response.body() instanceof InputStream) {
+                // timed out meanwhile, nobody will read the body
+                closeQuietly((InputStream) response.body());
+            }
+        });
+    }
+
+    String singleTestRunWithAllFields(String testRunId, String testTitle, String testRunType, String groupId) {
         return "" + "{" + "    \"type\":\"testruns\"," + "     \"attributes\":" + "        {"
                 + "            \"groupId\":\"" + groupId + "\"," + "            \"id\":\"" + testRunId + "\","
                 + "            \"isTemplate\":false," + "            \"keepInHistory\":true,"
@@ -222,7 +1014,7 @@ public class PolarionConnector {
                 + "         }" + "}";
     }
 
-    private String createWorkItemBodyForWokflowAction(String id) {
+    String createWorkItemBodyForWokflowAction(String id) {
         return "{" + "  \"data\": {" + "    \"type\": \"workitems\"," + "    \"id\":\"" + id + "\","
                 + "    \"attributes\": {" + "    }" + "  }" + "}";
     }
@@ -0,0 +1,96 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.init.Terminator;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads shared by all Polarion work in this JVM. Threads that block on Polarion requests are
+ * virtual threads when the JVM supports them (Java 21 and later), so many slow requests do not tie
+ * up platform threads of the controller or an agent; otherwise they are daemon platform threads.
+ */
+final class PolarionExecutors {
+
+    /** Set to {@code false} to use platform threads even where virtual threads are available. */
+    static final boolean VIRTUAL_THREADS = Boolean.parseBoolean(
+            System.getProperty(PolarionExecutors.class.getName() + ".virtualThreads", "true"));
+
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = virtualThreads("Polarion") != null;
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newScheduledThreadPool(2, daemonThreads("Polarion scheduler"));
+
+    private static final ExecutorService PUBLISHERS = Executors.newCachedThreadPool(ioThreads("Polarion publisher"));
+
+    private PolarionExecutors() {}
+
+    /**
+     * Shared scheduler for delayed work such as polling import jobs. Tasks run here must not block;
+     * they only trigger asynchronous requests and reschedule themselves.
+     */
+    static ScheduledExecutorService scheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Pool running the uploads of Pipeline steps, so the CPS thread is not held while results are sent
+     * to Polarion. It grows with the number of steps; how many requests reach a server at once is up
+     * to its {@link RequestThrottle}, so uploads never wait for a thread behind unrelated slow ones.
+     */
+    static ExecutorService publishers() {
+        return PUBLISHERS;
+    }
+
+    /**
+     * @return factory for threads doing blocking Polarion I/O, virtual if enabled and supported.
+     */
+    static ThreadFactory ioThreads(String name) {
+        return ioThreads(name, VIRTUAL_THREADS);
+    }
+
+    static ThreadFactory ioThreads(String name, boolean virtual) {
+        return virtual && VIRTUAL_THREADS_SUPPORTED ? virtualThreads(name) : daemonThreads(name);
+    }
+
+    /**
+     * @return whether {@link #ioThreads(String)} creates virtual threads.
+     */
+    static boolean isVirtualThreads() {
+        return VIRTUAL_THREADS && VIRTUAL_THREADS_SUPPORTED;
+    }
+
+    /**
+     * Looked up reflectively, as the plugin is compiled for Java versions without virtual threads.
+     *
+     * @return {@code Thread.ofVirtual().name(name + " #", 1).factory()}, or {@code null} if not supported.
+     */
+    private static ThreadFactory virtualThreads(String name) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method named = builder.getMethod("name", String.class, long.class);
+            return (ThreadFactory) builder.getMethod("factory").invoke(named.invoke(ofVirtual, name + " #", 1L));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Terminator
+    public static void shutdown() {
+        SCHEDULER.shutdownNow();
+        PUBLISHERS.shutdownNow();
+    }
+}
@@ -0,0 +1,51 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Periodically sends a cheap read request to every node of every configured connection and records
+ * the outcome in {@link NodeHealth}, so read-only requests are routed to the fastest healthy node.
+ */
+@Extension
+public class PolarionHealthCheck extends AsyncPeriodicWork {
+
+    static final long RECURRENCE_MILLIS = Long.getLong(PolarionHealthCheck.class.getName() + ".recurrenceMillis", MIN);
+    private static final int PARALLELISM = 4;
+
+    public PolarionHealthCheck() {
+        super("Polarion health check");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_MILLIS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws InterruptedException {
+        // node URL to the token of the connection it belongs to
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (PolarionConnection connection :
+                PolarionWorkItemStatusUpdateBuilder.getGlobalConfig().getConfig().getConnections()) {
+            if (connection.getToken() != null) {
+                for (String node : connection.getNodeUrls()) {
+                    nodes.putIfAbsent(node, connection.getToken().getPlainText());
+                }
+            }
+        }
+        ParallelTasks.Results<String, Long> results = ParallelTasks.run(
+                new ArrayList<>(nodes.keySet()),
+                PARALLELISM,
+                node -> new PolarionConnector(node, nodes.get(node)).ping());
+        results.getSucceeded().forEach((node, millis) -> NodeHealth.forUrl(node).succeeded(millis));
+        results.getFailed().forEach((node, e) -> {
+            NodeHealth.forUrl(node).failed(e.getMessage());
+            listener.getLogger().println("Polarion node " + node + " is unhealthy: " + e.getMessage());
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.init.Terminator;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide registry of {@link HttpClient}s, one per Polarion server. Sharing a client lets
+ * requests to the same server reuse kept-alive connections (and multiplex over HTTP/2) instead of
+ * paying a TCP and TLS handshake per {@link PolarionConnector}.
+ */
+public final class PolarionHttpClients {
+
+    private static final Logger LOGGER = Logger.getLogger(PolarionHttpClients.class.getName());
+
+    static final int CONNECT_TIMEOUT_SECONDS =
+            Integer.getInteger(PolarionHttpClients.class.getName() + ".connectTimeoutSeconds", 60);
+
+    private static final ConcurrentMap<String, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final AtomicLong OPENED = new AtomicLong();
+    private static final AtomicLong REUSED = new AtomicLong();
+
+    private PolarionHttpClients() {}
+
+    static HttpClient forUrl(String url) {
+        String key = serverKey(url);
+        HttpClient client = CLIENTS.get(key);
+        if (client != null) {
+            REUSED.incrementAndGet();
+            return client;
+        }
+        return CLIENTS.computeIfAbsent(key, k -> {
+            OPENED.incrementAndGet();
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS));
+            if (PolarionExecutors.isVirtualThreads()) {
+                // asynchronous requests, such as import job polling, complete on virtual threads too
+                builder.executor(Executors.newCachedThreadPool(PolarionExecutors.ioThreads("Polarion HTTP client")));
+            }
+            return builder.build();
+        });
+    }
+
+    /**
+     * Connections are pooled per origin, so scheme, host and port identify a server.
+     */
+    static String serverKey(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getScheme() != null && uri.getAuthority() != null) {
+                return (uri.getScheme() + "://" + uri.getAuthority()).toLowerCase(Locale.ROOT);
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through, the request itself will report the malformed URL
+        }
+        return url;
+    }
+
+    /**
+     * @return number of clients created, i.e. servers for which a new connection pool was opened.
+     */
+    public static long getOpened() {
+        return OPENED.get();
+    }
+
+    /**
+     * @return number of connector instances that were served by an already existing client.
+     */
+    public static long getReused() {
+        return REUSED.get();
+    }
+
+    public static List<String> getServers() {
+        return new ArrayList<>(CLIENTS.keySet());
+    }
+
+    @Terminator
+    public static void closeAll() {
+        for (String key : getServers()) {
+            HttpClient client = CLIENTS.remove(key);
+            // HttpClient implements AutoCloseable from Java 21 on; older runtimes release it on GC
+            if (client instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) client).close();
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Failed to close HTTP client for " + key, e);
+                }
+            }
+        }
+    }
+}
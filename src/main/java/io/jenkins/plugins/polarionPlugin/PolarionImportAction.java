@@ -0,0 +1,161 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.RunAction2;
+
+/**
+ * Records the outcome of the Polarion import jobs started by a build. The jobs are tracked in the
+ * background after the upload, so the final status is filled in even after the build has finished,
+ * and tracking resumes when the build is loaded again after a restart.
+ */
+public class PolarionImportAction extends InvisibleAction implements RunAction2 {
+
+    private static final Logger LOGGER = Logger.getLogger(PolarionImportAction.class.getName());
+
+    private final String url;
+    private final String project;
+    private final String testRunId;
+    private final List<String> jobIds;
+    private final List<ImportJobStatus> jobs = new CopyOnWriteArrayList<>();
+    private volatile int testRecordCount = -1;
+
+    public PolarionImportAction(String url, String project, String testRunId, List<String> jobIds) {
+        this.url = url;
+        this.project = project;
+        this.testRunId = testRunId;
+        this.jobIds = new ArrayList<>(jobIds);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getTestRunId() {
+        return testRunId;
+    }
+
+    /**
+     * @return test run id without the project prefix, as used in Polarion URLs.
+     */
+    public String getShortTestRunId() {
+        return testRunId.replace(project + "/", "");
+    }
+
+    public List<String> getJobIds() {
+        return Collections.unmodifiableList(jobIds);
+    }
+
+    public List<ImportJobStatus> getJobs() {
+        return Collections.unmodifiableList(jobs);
+    }
+
+    /**
+     * @return number of test records in the test run once all jobs finished, -1 while unknown.
+     */
+    public int getTestRecordCount() {
+        return testRecordCount;
+    }
+
+    public boolean isComplete() {
+        return jobs.size() >= jobIds.size();
+    }
+
+    public long getSuccessfulCount() {
+        return jobs.stream().filter(ImportJobStatus::isSuccessful).count();
+    }
+
+    public long getFailedCount() {
+        return jobs.size() - getSuccessfulCount();
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {}
+
+    /**
+     * Resumes tracking the jobs that had not finished when Jenkins stopped, through the configured
+     * connection to the same server. Without such a connection their status is unknown.
+     */
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        if (isComplete()) {
+            return;
+        }
+        PolarionConnection polarion =
+                PolarionWorkItemStatusUpdateBuilder.getGlobalConfig().getConfig().connectionForUrl(url);
+        if (polarion == null) {
+            String message = "Jenkins restarted, no connection to " + url + " is configured";
+            for (String jobId : getPendingJobIds()) {
+                jobs.add(new ImportJobStatus(jobId, "UNKNOWN", "UNKNOWN", message, -1));
+            }
+            return;
+        }
+        track(run, polarion.connector());
+    }
+
+    /**
+     * Starts tracking the import jobs of this action without a status yet and saves the build whenever
+     * one of them finishes.
+     */
+    public CompletableFuture<Void> track(Run<?, ?> run, PolarionConnector connector) {
+        List<CompletableFuture<ImportJobStatus>> tracked = new ArrayList<>();
+        for (String jobId : getPendingJobIds()) {
+            tracked.add(connector.trackImportJob(jobId).handle((status, error) -> {
+                ImportJobStatus result = status != null
+                        ? status
+                        : new ImportJobStatus(jobId, "UNKNOWN", "FAILED", rootCause(error).getMessage(), -1);
+                jobs.add(result);
+                save(run);
+                return result;
+            }));
+        }
+        return CompletableFuture.allOf(tracked.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(done -> connector.countTestRecords(project, getShortTestRunId()))
+                .handle((count, error) -> {
+                    if (error != null) {
+                        LOGGER.log(Level.FINE, "Could not count test records of " + testRunId, error);
+                    } else {
+                        testRecordCount = count;
+                        save(run);
+                    }
+                    return null;
+                });
+    }
+
+    private List<String> getPendingJobIds() {
+        Set<String> finished = new HashSet<>();
+        for (ImportJobStatus job : jobs) {
+            finished.add(job.getJobId());
+        }
+        List<String> pending = new ArrayList<>(jobIds);
+        pending.removeAll(finished);
+        return pending;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static void save(Run<?, ?> run) {
+        try {
+            run.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save Polarion import status of " + run, e);
+        }
+    }
+}
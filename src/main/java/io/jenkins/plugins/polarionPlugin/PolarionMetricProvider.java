@@ -0,0 +1,56 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import hudson.Extension;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import jenkins.metrics.api.MetricProvider;
+
+/**
+ * Publishes {@link ConnectorMetrics} to the Metrics plugin, when it is installed, under
+ * {@code polarion.<endpoint>.*}.
+ */
+@Extension(optional = true)
+public class PolarionMetricProvider extends MetricProvider {
+
+    @Override
+    public MetricSet getMetricSet() {
+        return () -> {
+            Map<String, Metric> metrics = new TreeMap<>();
+            for (ConnectorMetrics endpoint : ConnectorMetrics.all()) {
+                String prefix = MetricRegistry.name(
+                        "polarion", endpoint.getEndpoint().name().toLowerCase(Locale.ROOT));
+                metrics.put(prefix + ".requests", (Gauge<Long>) endpoint::getRequests);
+                metrics.put(prefix + ".errors", (Gauge<Long>) endpoint::getErrors);
+                metrics.put(prefix + ".in-flight", (Gauge<Integer>) endpoint::getInFlight);
+                metrics.put(prefix + ".bytes-sent", (Gauge<Long>) endpoint::getBytesSent);
+                metrics.put(prefix + ".bytes-received", (Gauge<Long>) endpoint::getBytesReceived);
+                metrics.put(prefix + ".latency.mean", (Gauge<Long>) endpoint::getMeanMillis);
+                metrics.put(prefix + ".latency.p50", (Gauge<Long>) endpoint::getP50Millis);
+                metrics.put(prefix + ".latency.p95", (Gauge<Long>) endpoint::getP95Millis);
+                metrics.put(prefix + ".latency.p99", (Gauge<Long>) endpoint::getP99Millis);
+                for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                    int digit = statusClass;
+                    metrics.put(
+                            prefix + ".status." + digit + "xx", (Gauge<Long>) () -> countStatusClass(endpoint, digit));
+                }
+            }
+            metrics.put("polarion.retries", (Gauge<Long>) PolarionConnector::getRetryCount);
+            metrics.put("polarion.http-clients.opened", (Gauge<Long>) PolarionHttpClients::getOpened);
+            metrics.put("polarion.http-clients.reused", (Gauge<Long>) PolarionHttpClients::getReused);
+            metrics.put("polarion.outbox.size", (Gauge<Integer>) () -> PolarionOutbox.get().getSize());
+            return metrics;
+        };
+    }
+
+    private static long countStatusClass(ConnectorMetrics endpoint, int statusClass) {
+        return endpoint.getStatusCodes().entrySet().stream()
+                .filter(e -> e.getKey() / 100 == statusClass)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+}
@@ -1,6 +1,7 @@
 package io.jenkins.plugins.polarionPlugin;
 
 import hudson.AbortException;
+import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -8,18 +9,31 @@ import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
+import hudson.slaves.WorkspaceList;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
+import hudson.util.ComboBoxModel;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.xml.stream.XMLStreamException;
 import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.DirectoryScanner;
@@ -27,11 +41,17 @@ import org.apache.tools.ant.types.FileSet;
 import org.json.JSONException;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.verb.POST;
 
 public class PolarionNotifier extends Notifier {
     public static final String PLUGIN_SHORTNAME = "polarion-testResultReporter";
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_UPLOAD_SIZE_MB = 50;
+    static final String DELTA_INDEX_FILE = "polarion-delta-index.bin";
+    public static final String DEFAULT_LINK_PROPERTY = "polarion-requirement-id";
 
     private String project;
     private String testRunIdPrefix;
@@ -39,6 +59,22 @@ public class PolarionNotifier extends Notifier {
     private String testRunType;
     private String groupId;
     private String testResultsXml;
+    private int uploadParallelism = DEFAULT_UPLOAD_PARALLELISM;
+    private boolean mergeResults;
+    private boolean compressUploads;
+    private int maxUploadSizeMb = DEFAULT_MAX_UPLOAD_SIZE_MB;
+    private boolean queueOnFailure;
+    private int timeoutMinutes;
+    private boolean deltaUpload;
+    private boolean dropOutput;
+    private int maxFailureMessageLength;
+    private boolean dropPassedProperties;
+    private boolean sharedTestRun;
+    private String connection;
+    private String passedWorkflowAction;
+    private String failedWorkflowAction;
+    private String linkProperty;
+    private boolean annotateTestCaseIds;
 
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
@@ -85,6 +121,211 @@ public class PolarionNotifier extends Notifier {
         return groupId;
     }
 
+    public int getUploadParallelism() {
+        return uploadParallelism > 0 ? uploadParallelism : DEFAULT_UPLOAD_PARALLELISM;
+    }
+
+    @DataBoundSetter
+    public void setUploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = uploadParallelism;
+    }
+
+    public boolean isMergeResults() {
+        return mergeResults;
+    }
+
+    @DataBoundSetter
+    public void setMergeResults(boolean mergeResults) {
+        this.mergeResults = mergeResults;
+    }
+
+    public boolean isCompressUploads() {
+        return compressUploads;
+    }
+
+    @DataBoundSetter
+    public void setCompressUploads(boolean compressUploads) {
+        this.compressUploads = compressUploads;
+    }
+
+    /**
+     * @return size in MB above which a result file is split into several imports.
+     */
+    public int getMaxUploadSizeMb() {
+        return maxUploadSizeMb > 0 ? maxUploadSizeMb : DEFAULT_MAX_UPLOAD_SIZE_MB;
+    }
+
+    @DataBoundSetter
+    public void setMaxUploadSizeMb(int maxUploadSizeMb) {
+        this.maxUploadSizeMb = maxUploadSizeMb;
+    }
+
+    /**
+     * @return whether results that cannot be uploaded are kept in the {@link PolarionOutbox} and
+     *     delivered once Polarion is reachable again, instead of failing the build.
+     */
+    public boolean isQueueOnFailure() {
+        return queueOnFailure;
+    }
+
+    @DataBoundSetter
+    public void setQueueOnFailure(boolean queueOnFailure) {
+        this.queueOnFailure = queueOnFailure;
+    }
+
+    /**
+     * @return minutes the upload, including creating the test run and workflow actions, may take;
+     *     0 for no limit.
+     */
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = Math.max(0, timeoutMinutes);
+    }
+
+    /**
+     * @return what is left of the time limit of an upload started at {@code started}, null without limit.
+     */
+    private Duration remaining(long started) {
+        return timeoutMinutes > 0
+                ? Duration.ofMinutes(timeoutMinutes).minusMillis(System.currentTimeMillis() - started)
+                : null;
+    }
+
+    /**
+     * @return whether only test cases whose outcome changed since the last upload of the job are sent,
+     *     into the test run of that upload.
+     */
+    public boolean isDeltaUpload() {
+        return deltaUpload;
+    }
+
+    @DataBoundSetter
+    public void setDeltaUpload(boolean deltaUpload) {
+        this.deltaUpload = deltaUpload;
+    }
+
+    /**
+     * @return whether {@code system-out} and {@code system-err} are removed from the results before upload.
+     */
+    public boolean isDropOutput() {
+        return dropOutput;
+    }
+
+    @DataBoundSetter
+    public void setDropOutput(boolean dropOutput) {
+        this.dropOutput = dropOutput;
+    }
+
+    /**
+     * @return characters kept of failure messages and stack traces, 0 to keep them complete.
+     */
+    public int getMaxFailureMessageLength() {
+        return maxFailureMessageLength;
+    }
+
+    @DataBoundSetter
+    public void setMaxFailureMessageLength(int maxFailureMessageLength) {
+        this.maxFailureMessageLength = maxFailureMessageLength;
+    }
+
+    public boolean isDropPassedProperties() {
+        return dropPassedProperties;
+    }
+
+    @DataBoundSetter
+    public void setDropPassedProperties(boolean dropPassedProperties) {
+        this.dropPassedProperties = dropPassedProperties;
+    }
+
+    /**
+     * @return whether all uploads of a build, including its matrix cells and parallel stages, go into
+     *     one test run created on the controller, instead of a test run per upload.
+     */
+    public boolean isSharedTestRun() {
+        return sharedTestRun;
+    }
+
+    @DataBoundSetter
+    public void setSharedTestRun(boolean sharedTestRun) {
+        this.sharedTestRun = sharedTestRun;
+    }
+
+    /**
+     * @return name of the connection to use, blank for the default one.
+     */
+    public String getConnection() {
+        return connection;
+    }
+
+    @DataBoundSetter
+    public void setConnection(String connection) {
+        this.connection = Util.fixEmptyAndTrim(connection);
+    }
+
+    /**
+     * @return workflow action triggered on linked work items whose test cases all passed, blank for none.
+     */
+    public String getPassedWorkflowAction() {
+        return passedWorkflowAction;
+    }
+
+    @DataBoundSetter
+    public void setPassedWorkflowAction(String passedWorkflowAction) {
+        this.passedWorkflowAction = Util.fixEmptyAndTrim(passedWorkflowAction);
+    }
+
+    /**
+     * @return workflow action triggered on linked work items with a failed test case, blank for none.
+     */
+    public String getFailedWorkflowAction() {
+        return failedWorkflowAction;
+    }
+
+    @DataBoundSetter
+    public void setFailedWorkflowAction(String failedWorkflowAction) {
+        this.failedWorkflowAction = Util.fixEmptyAndTrim(failedWorkflowAction);
+    }
+
+    /**
+     * @return name of the test case property listing the linked work items.
+     */
+    public String getLinkProperty() {
+        return StringUtils.isNotBlank(linkProperty) ? linkProperty : DEFAULT_LINK_PROPERTY;
+    }
+
+    @DataBoundSetter
+    public void setLinkProperty(String linkProperty) {
+        this.linkProperty = Util.fixEmptyAndTrim(linkProperty);
+    }
+
+    /**
+     * @return whether test cases get the id of the Polarion test case with their title from the test case
+     *     index before upload.
+     */
+    public boolean isAnnotateTestCaseIds() {
+        return annotateTestCaseIds;
+    }
+
+    @DataBoundSetter
+    public void setAnnotateTestCaseIds(boolean annotateTestCaseIds) {
+        this.annotateTestCaseIds = annotateTestCaseIds;
+    }
+
+    private boolean hasWorkflowActions() {
+        return passedWorkflowAction != null || failedWorkflowAction != null;
+    }
+
+    /**
+     * @return the connection of this publisher in the current global configuration.
+     */
+    PolarionConnection resolveConnection() throws AbortException {
+        return getDescriptor().getConfig().connection(connection);
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) super.getDescriptor();
@@ -98,46 +339,322 @@ public class PolarionNotifier extends Notifier {
             throw new AbortException("no workspace for " + build);
         }
         try {
-            final String expandTestResults = build.getEnvironment(listener).expand(this.testResultsXml);
-            final long timeOnMaster = System.currentTimeMillis();
+            PublishResult result = upload(build, workspace, build.getEnvironment(listener), listener);
+            record(build, result, listener);
+            if (result.isFailed()) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            listener.getLogger().println("Interupted, " + e.getMessage());
+            return false;
+        } catch (JSONException | IOException | HttpException e) {
+            listener.getLogger().println(e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Uploads the result files from the workspace into a new test run and links the import jobs in
+     * the build description.
+     */
+    PublishResult upload(Run<?, ?> run, FilePath workspace, EnvVars env, TaskListener listener)
+            throws IOException, InterruptedException {
+        final String expandTestResults = env.expand(this.testResultsXml);
+        final long timeOnMaster = System.currentTimeMillis();
 
-            listener.getLogger().println("Starting test results  upload to Polarion project - " + this.project);
-            String restToken = this.getDescriptor().getToken().getPlainText();
-            String mixedID = workspace.act(new ParseResultCallable(
+        PolarionConnection polarion = resolveConnection();
+        String url = polarion.getUrl();
+        listener.getLogger().println("Starting test results  upload to Polarion project - " + this.project);
+        String restToken = Secret.toString(polarion.getToken());
+        // uploads from the agent queue on the controller's throttle for this server, through leases
+        // that are given back when the upload ends, even if the agent is gone by then
+        ThrottleLeases leases = new ThrottleLeases(RequestThrottle.forUrl(url));
+        PolarionThrottle throttle = workspace.getChannel().export(PolarionThrottle.class, leases);
+        ConnectorMetrics.Recorder recorder =
+                workspace.getChannel().export(ConnectorMetrics.Recorder.class, ConnectorMetrics.LOCAL);
+        CircuitBreaker breaker = CircuitBreaker.forServer(PolarionHttpClients.serverKey(url));
+        if (queueOnFailure && breaker.getState() == CircuitBreaker.State.OPEN) {
+            listener.getLogger().println("Polarion server is unavailable, not attempting the upload.");
+            return queueAll(run, workspace, expandTestResults, polarion, null, listener);
+        }
+        // a shared test run gets the results of several cells or stages, which one index cannot tell apart
+        boolean delta = deltaUpload && !sharedTestRun;
+        if (deltaUpload && sharedTestRun) {
+            listener.getLogger().println("Delta upload is not used together with a shared test run.");
+        }
+        File deltaIndexFile = new File(run.getParent().getRootDir(), DELTA_INDEX_FILE);
+        DeltaIndex previousIndex = delta ? DeltaIndex.load(deltaIndexFile) : null;
+        String sharedTestRunId = null;
+        PublishResult result;
+        try {
+            if (sharedTestRun) {
+                PolarionConnector connector = new PolarionConnector(url, restToken);
+                connector.setLogger(listener.getLogger());
+                connector.setTimeout(remaining(timeOnMaster));
+                sharedTestRunId = TestRunCoordinator.testRunFor(
+                        run,
+                        connector,
+                        url,
+                        project,
+                        testRunIdPrefix,
+                        testRunTitle,
+                        testRunType,
+                        groupId);
+                listener.getLogger()
+                        .println(String.format(
+                                "Uploading into testRun %s shared by all uploads of %s.",
+                                sharedTestRunId,
+                                TestRunCoordinator.rootOf(run).getFullDisplayName()));
+            }
+            String testCaseIndex = annotateTestCaseIds ? copyTestCaseIndex(polarion, workspace, listener) : null;
+            result = workspace.act(new ParseResultCallable(
                     listener,
+                    throttle,
+                    recorder,
                     expandTestResults,
-                    this.getDescriptor().getUrl(),
+                    url,
                     restToken,
                     project,
                     testRunIdPrefix,
                     testRunTitle,
                     testRunType,
-                    groupId));
-            long time = System.currentTimeMillis() - timeOnMaster;
-            String fullTestRunID = mixedID.split("###")[0];
-            String JobID = mixedID.split("###")[1];
-            String testRunID = fullTestRunID.replace(this.project + "/", "");
-            String jobSubmitted =
-                    String.format("TestResults Upload job subimtted with JobID %s. Took %sms", JobID, time);
-            listener.getLogger().println(jobSubmitted);
-            build.setDescription(jobSubmitted + "\n\n" + "Job log - "
-                    + this.getDescriptor().getUrl() + "/job-report?jobId=" + JobID + "\n\n" + "TestRun link - "
-                    + this.getDescriptor().getUrl() + "/redirect/project/" + this.project + "/testrun?id=" + testRunID);
-            build.save();
-        } catch (InterruptedException e) {
-            listener.getLogger().println("Interupted, " + e.getMessage());
-            return false;
-        } catch (JSONException | IOException | HttpException e) {
-            listener.getLogger().println(e.getMessage());
-            return false;
+                    groupId,
+                    getUploadParallelism(),
+                    mergeResults,
+                    compressUploads,
+                    getMaxUploadSizeMb() * 1024L * 1024L,
+                    delta,
+                    previousIndex,
+                    sharedTestRunId,
+                    hasWorkflowActions() ? getLinkProperty() : null,
+                    testCaseIndex,
+                    remaining(timeOnMaster),
+                    new XUnitSlimming(dropOutput, maxFailureMessageLength, dropPassedProperties)));
+        } catch (AbortException e) {
+            throw e;
+        } catch (IOException | HttpException e) {
+            if (!queueOnFailure) {
+                throw e;
+            }
+            listener.getLogger().println("Upload to Polarion failed: " + e.getMessage());
+            return queueAll(run, workspace, expandTestResults, polarion, sharedTestRunId, listener);
+        } finally {
+            leases.close();
         }
-        return true;
+        long time = System.currentTimeMillis() - timeOnMaster;
+        String testRunID = result.getTestRunId().replace(this.project + "/", "");
+        String jobSubmitted = String.format(
+                "TestResults Upload job subimtted with JobID %s. Took %sms",
+                String.join(", ", result.getJobIds()),
+                time);
+        listener.getLogger().println(jobSubmitted);
+        StringBuilder description = new StringBuilder(jobSubmitted).append("\n\n");
+        if (result.getDeltaIndex() != null) {
+            description.append("Delta upload - ").append(result.getDeltaSummary()).append("\n\n");
+            if (result.getFailures().isEmpty()) {
+                result.getDeltaIndex().save(deltaIndexFile);
+            } else {
+                // start over with a new test run and a full upload, the old one may be gone
+                Files.deleteIfExists(deltaIndexFile.toPath());
+            }
+        }
+        for (String jobId : result.getJobIds()) {
+            description
+                    .append("Job log - ")
+                    .append(url)
+                    .append("/job-report?jobId=")
+                    .append(jobId)
+                    .append("\n\n");
+        }
+        description
+                .append("TestRun link - ")
+                .append(url)
+                .append("/redirect/project/")
+                .append(this.project)
+                .append("/testrun?id=")
+                .append(testRunID);
+        run.setDescription(description.toString());
+        if (hasWorkflowActions()) {
+            if (result.getFailures().isEmpty()) {
+                applyWorkflowActions(polarion, result, remaining(timeOnMaster), listener);
+            } else {
+                listener.getLogger().println("Not all results were uploaded, workflow actions are not triggered.");
+            }
+        }
+        if (!result.getFailures().isEmpty()) {
+            listener.getLogger()
+                    .println(String.format(
+                            "%s of %s result files could not be uploaded.",
+                            result.getFailures().size(),
+                            result.getFailures().size() + result.getJobIds().size()));
+            if (queueOnFailure) {
+                Map<String, FilePath> files = new LinkedHashMap<>();
+                for (String file : result.getFailedFiles()) {
+                    files.put(file, workspace.child(file));
+                }
+                queue(run, result, polarion, files, listener);
+            }
+        }
+        return result;
     }
 
-    private static final class ParseResultCallable extends MasterToSlaveFileCallable<String> {
+    /**
+     * Triggers the passed or failed workflow action on every work item linked from the uploaded test
+     * cases, according to the outcome of all test cases linking to it.
+     */
+    private void applyWorkflowActions(
+            PolarionConnection polarion, PublishResult result, Duration timeout, TaskListener listener)
+            throws InterruptedException {
+        Map<String, String> actions = new LinkedHashMap<>();
+        result.getLinkedWorkItems().forEach((id, passed) -> {
+            String action = passed ? passedWorkflowAction : failedWorkflowAction;
+            if (action != null) {
+                actions.put(id, action);
+            }
+        });
+        if (actions.isEmpty()) {
+            return;
+        }
+        PolarionConnector connector = polarion.connector();
+        connector.setLogger(listener.getLogger());
+        connector.setTimeout(timeout);
+        long start = System.currentTimeMillis();
+        ParallelTasks.Results<String, String> results = ParallelTasks.run(
+                new ArrayList<>(actions.keySet()), PolarionWorkItemStatusUpdateBuilder.DEFAULT_PARALLELISM, id -> {
+                    // links may name work items of other projects as <project>/<id>
+                    int slash = id.indexOf('/');
+                    connector.updateWorkItemWithWorkFlow(
+                            slash > 0 ? id.substring(0, slash) : project, id.substring(slash + 1), actions.get(id));
+                    return id;
+                });
+        results.getFailed().forEach((id, e) -> {
+            listener.getLogger()
+                    .println(String.format(
+                            "Workflow action(%s) for workitem %s failed: %s", actions.get(id), id, e.getMessage()));
+            result.addWorkflowFailure(id, e.getMessage());
+        });
+        listener.getLogger()
+                .println(String.format(
+                        "Workflow actions on linked workitems succeeded for %s and failed for %s. Took %sms",
+                        results.getSucceeded().size(),
+                        results.getFailed().size(),
+                        System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Queues all result files for a later upload into {@code testRunId}, or into a test run that is yet
+     * to be created if it is {@code null}.
+     */
+    private PublishResult queueAll(
+            Run<?, ?> run,
+            FilePath workspace,
+            String testResults,
+            PolarionConnection polarion,
+            String testRunId,
+            TaskListener listener)
+            throws IOException, InterruptedException {
+        FilePath[] matched = workspace.list(testResults);
+        if (matched.length == 0) {
+            throw new AbortException("No test result files found matching " + testResults);
+        }
+        Map<String, FilePath> files = new LinkedHashMap<>();
+        String prefix = workspace.getRemote() + File.separator;
+        for (FilePath file : matched) {
+            String remote = file.getRemote();
+            files.put(remote.startsWith(prefix) ? remote.substring(prefix.length()) : remote, file);
+        }
+        PublishResult result = new PublishResult(testRunId);
+        queue(run, result, polarion, files, listener);
+        run.setDescription("Polarion was unavailable, test results are queued for upload (" + result.getQueuedEntry()
+                + "). The import jobs will be linked here once delivered.");
+        return result;
+    }
+
+    private void queue(
+            Run<?, ?> run,
+            PublishResult result,
+            PolarionConnection polarion,
+            Map<String, FilePath> files,
+            TaskListener listener)
+            throws IOException, InterruptedException {
+        PolarionOutbox outbox = PolarionOutbox.get();
+        String id = outbox.enqueue(
+                new OutboxEntry(PolarionOutbox.newId(), run, this, polarion, result.getTestRunId()), files);
+        result.setQueuedEntry(id);
+        listener.getLogger()
+                .println(String.format(
+                        "%s result files queued for upload to Polarion as %s in %s.",
+                        files.size(), id, outbox.getDirectory()));
+    }
+
+    /**
+     * Adds a {@link PolarionImportAction} for the uploaded jobs to the run and starts tracking them.
+     *
+     * @return completes with the action once all import jobs finished, or with {@code null} right away
+     *     if nothing was imported.
+     */
+    CompletableFuture<PolarionImportAction> record(Run<?, ?> run, PublishResult result, TaskListener listener)
+            throws IOException {
+        if (result.getJobIds().isEmpty()) {
+            run.save();
+            return CompletableFuture.completedFuture(null);
+        }
+        PolarionConnection polarion = resolveConnection();
+        PolarionImportAction importAction = new PolarionImportAction(
+                polarion.getUrl(), this.project, result.getTestRunId(), result.getJobIds());
+        run.addAction(importAction);
+        run.save();
+        listener.getLogger().println("Import job status will be recorded on the build when Polarion finishes.");
+        PolarionConnector connector = polarion.connector();
+        return importAction.track(run, connector).thenApply(done -> importAction);
+    }
+
+    /**
+     * Refreshes the test case index of the project and copies it next to the workspace, unless the copy
+     * there is current.
+     *
+     * @return path of the copy on the agent, null if there is no index.
+     */
+    private String copyTestCaseIndex(PolarionConnection polarion, FilePath workspace, TaskListener listener)
+            throws InterruptedException {
+        try {
+            File file = TestCaseIndexes.refresh(polarion, project, listener);
+            FilePath tempDir = WorkspaceList.tempDir(workspace);
+            if (tempDir == null || !file.isFile()) {
+                return null;
+            }
+            String prefix = "polarion-" + file.getParentFile().getName() + "-" + TestCaseIndexes.safeName(project);
+            FilePath copy = tempDir.child(prefix + "-" + file.lastModified() + ".idx");
+            if (!copy.exists()) {
+                tempDir.mkdirs();
+                FilePath tmp = tempDir.child(copy.getName() + ".tmp");
+                new FilePath(file).copyTo(tmp);
+                tmp.renameTo(copy);
+                for (FilePath old : tempDir.list(prefix + "-*.idx")) {
+                    try {
+                        if (!old.getName().equals(copy.getName())) {
+                            old.delete();
+                        }
+                    } catch (IOException e) {
+                        // still in use by another upload, removed next time
+                    }
+                }
+            }
+            return copy.getRemote();
+        } catch (IOException | HttpException e) {
+            listener.getLogger()
+                    .println("Test case index is not available, Polarion matches the test cases: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class ParseResultCallable extends MasterToSlaveFileCallable<PublishResult> {
 
         private static final long serialVersionUID = 1L;
-        private BuildListener listener;
+        private TaskListener listener;
+        private final PolarionThrottle throttle;
+        private final ConnectorMetrics.Recorder recorder;
         private final String testResults;
         private final String url;
         private final String token;
@@ -146,9 +663,22 @@ public class PolarionNotifier extends Notifier {
         private String testRunTitle;
         private String testRunType;
         private String groupId;
+        private final int uploadParallelism;
+        private final boolean mergeResults;
+        private final boolean compressUploads;
+        private final long maxUploadBytes;
+        private final boolean deltaUpload;
+        private final DeltaIndex previousIndex;
+        private final String sharedTestRunId;
+        private final String linkProperty;
+        private final String testCaseIndex;
+        private final Duration timeout;
+        private final XUnitSlimming slimming;
 
         private ParseResultCallable(
-                BuildListener listener,
+                TaskListener listener,
+                PolarionThrottle throttle,
+                ConnectorMetrics.Recorder recorder,
                 String testResults,
                 String url,
                 String token,
@@ -156,8 +686,21 @@ public class PolarionNotifier extends Notifier {
                 String testRunIdPrefix,
                 String testRunTitle,
                 String testRunType,
-                String groupId) {
+                String groupId,
+                int uploadParallelism,
+                boolean mergeResults,
+                boolean compressUploads,
+                long maxUploadBytes,
+                boolean deltaUpload,
+                DeltaIndex previousIndex,
+                String sharedTestRunId,
+                String linkProperty,
+                String testCaseIndex,
+                Duration timeout,
+                XUnitSlimming slimming) {
             this.listener = listener;
+            this.throttle = throttle;
+            this.recorder = recorder;
             this.testResults = testResults;
             this.url = url;
             this.token = token;
@@ -166,33 +709,249 @@ public class PolarionNotifier extends Notifier {
             this.testRunTitle = testRunTitle;
             this.testRunType = testRunType;
             this.groupId = groupId;
+            this.uploadParallelism = uploadParallelism;
+            this.mergeResults = mergeResults;
+            this.compressUploads = compressUploads;
+            this.maxUploadBytes = maxUploadBytes;
+            this.deltaUpload = deltaUpload;
+            this.previousIndex = previousIndex;
+            this.sharedTestRunId = sharedTestRunId;
+            this.linkProperty = linkProperty;
+            this.testCaseIndex = testCaseIndex;
+            this.timeout = timeout;
+            this.slimming = slimming;
         }
 
         @Override
-        public String invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+        public PublishResult invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
             List<File> listFiles = new ArrayList<>();
 
             FileSet fs = Util.createFileSet(ws, testResults);
             DirectoryScanner ds = fs.getDirectoryScanner();
 
             String[] files = ds.getIncludedFiles();
-            if (files.length > 0) {
+            if (files.length == 0) {
+                throw new AbortException("No test result files found matching " + testResults);
+            }
 
-                File baseDir = ds.getBasedir();
-                for (String value : files) {
-                    File reportFile = new File(baseDir, value);
-                    listFiles.add(reportFile);
-                }
-                PolarionConnector polarionConnector = new PolarionConnector(url, token);
-                String testRunId = polarionConnector.createNewTestRun(
+            File baseDir = ds.getBasedir();
+            // name of each file in the workspace, for files derived from a result file the name of that file
+            Map<File, String> names = new LinkedHashMap<>();
+            for (String value : files) {
+                File reportFile = new File(baseDir, value);
+                listFiles.add(reportFile);
+                names.put(reportFile, baseDir.toPath().relativize(reportFile.toPath()).toString());
+            }
+            Map<String, Boolean> linkedWorkItems = linkProperty != null ? collectLinks(listFiles) : null;
+            PolarionConnector polarionConnector = new PolarionConnector(url, token);
+            polarionConnector.setCompressUploads(compressUploads);
+            polarionConnector.setLogger(listener.getLogger());
+            polarionConnector.setThrottle(throttle);
+            polarionConnector.setRecorder(recorder);
+            polarionConnector.setTimeout(timeout);
+            String testRunId;
+            if (sharedTestRunId != null) {
+                testRunId = sharedTestRunId;
+            } else if (deltaUpload && previousIndex != null) {
+                testRunId = previousIndex.getTestRunId();
+                listener.getLogger()
+                        .println(String.format(
+                                "Delta upload: only test cases changed since the last upload are sent to testRun %s.",
+                                testRunId));
+            } else {
+                testRunId = polarionConnector.createNewTestRun(
                         this.project, this.testRunIdPrefix, this.testRunTitle, this.testRunType, this.groupId);
+            }
+            listener.getLogger()
+                    .println(String.format(
+                            "TestResults from %s files are being uploaded to testRun with ID %s.",
+                            listFiles.size(), testRunId));
+
+            String shortTestRunId = testRunId.replace(this.project + "/", "");
+            PublishResult result = new PublishResult(testRunId);
+            if (linkedWorkItems != null) {
+                result.setLinkedWorkItems(linkedWorkItems);
+            }
+            File workDir = null;
+            try {
+                if (deltaUpload) {
+                    workDir = Files.createTempDirectory("polarion-upload").toFile();
+                    listFiles = filterChanged(listFiles, names, testRunId, workDir, result);
+                }
+                if (testCaseIndex != null) {
+                    if (workDir == null) {
+                        workDir = Files.createTempDirectory("polarion-upload").toFile();
+                    }
+                    listFiles = annotateTestCaseIds(listFiles, names, workDir);
+                }
+                // upload name of each file, so failures of chunks point back to the original file
+                Map<File, String> uploads = new LinkedHashMap<>();
+                Map<File, String> sources = new LinkedHashMap<>();
+                List<File> mergeable = new ArrayList<>();
+                for (File file : listFiles) {
+                    String name = names.get(file);
+                    if (file.length() <= maxUploadBytes) {
+                        if (mergeResults) {
+                            mergeable.add(file);
+                        } else {
+                            uploads.put(file, name);
+                            sources.put(file, name);
+                        }
+                        continue;
+                    }
+                    if (workDir == null) {
+                        workDir = Files.createTempDirectory("polarion-upload").toFile();
+                    }
+                    List<File> chunks = XUnitStreams.split(file, maxUploadBytes, workDir);
+                    listener.getLogger()
+                            .println(String.format(
+                                    "%s (%s bytes) exceeds the upload size limit, split into %s chunks.",
+                                    name, file.length(), chunks.size()));
+                    for (int i = 0; i < chunks.size(); i++) {
+                        uploads.put(chunks.get(i), String.format("%s (part %s of %s)", name, i + 1, chunks.size()));
+                        sources.put(chunks.get(i), name);
+                    }
+                }
+                // merged documents stay within the upload size limit as well
+                List<List<File>> batches = new ArrayList<>();
+                for (List<File> batch : XUnitStreams.batches(mergeable, maxUploadBytes)) {
+                    if (batch.size() == 1) {
+                        File file = batch.get(0);
+                        uploads.put(file, names.get(file));
+                        sources.put(file, names.get(file));
+                    } else {
+                        batches.add(batch);
+                    }
+                }
+                if (batches.size() > 1) {
+                    listener.getLogger()
+                            .println(String.format(
+                                    "Merged result files exceed the upload size limit, uploading %s merged files.",
+                                    batches.size()));
+                }
+                ParallelTasks.Results<List<File>, String> merged = ParallelTasks.run(
+                        batches,
+                        uploadParallelism,
+                        batch -> polarionConnector.publishResults(
+                                () -> XUnitStreams.pipe(
+                                        "Polarion xUnit merge", out -> XUnitStreams.merge(batch, out, slimming)),
+                                this.project,
+                                shortTestRunId));
+                merged.getSucceeded().values().forEach(result::addJobId);
+                merged.getFailed().forEach((batch, e) -> {
+                    listener.getLogger().println("Upload of merged result files failed: " + e.getMessage());
+                    for (File file : batch) {
+                        result.addFailure(names.get(file), names.get(file), e.getMessage());
+                    }
+                });
+
+                ParallelTasks.Results<File, String> results = ParallelTasks.run(
+                        new ArrayList<>(uploads.keySet()),
+                        uploadParallelism,
+                        file -> slimming.isEnabled()
+                                ? polarionConnector.publishResults(
+                                        () -> XUnitStreams.pipe(
+                                                "Polarion xUnit slimming", out -> slimming.copy(file, out)),
+                                        this.project,
+                                        shortTestRunId)
+                                : polarionConnector.publishResults(file, this.project, shortTestRunId));
+
+                results.getSucceeded().values().forEach(result::addJobId);
+                results.getFailed().forEach((file, e) -> {
+                    String name = uploads.get(file);
+                    listener.getLogger().println(String.format("Upload of %s failed: %s", name, e.getMessage()));
+                    result.addFailure(name, sources.get(file), e.getMessage());
+                });
+            } catch (XMLStreamException e) {
+                throw new IOException("Could not process test results: " + e.getMessage(), e);
+            } finally {
+                if (workDir != null) {
+                    Util.deleteRecursive(workDir);
+                }
+            }
+            if (slimming.isEnabled() && slimming.getBytesIn() > 0) {
+                long saved = slimming.getBytesIn() - slimming.getBytesOut();
                 listener.getLogger()
-                        .println(String.format("TestResults are being uploaded to testRun with ID %s.", testRunId));
-                String jobId = polarionConnector.publishResults(
-                        listFiles.get(0), this.project, testRunId.replace(this.project + "/", ""));
-                return testRunId + "###" + jobId;
+                        .println(String.format(
+                                "Slimmed test results from %s to %s bytes, saved %s bytes (%s%%).",
+                                slimming.getBytesIn(),
+                                slimming.getBytesOut(),
+                                saved,
+                                saved * 100 / slimming.getBytesIn()));
             }
-            return null;
+            return result;
+        }
+
+        /**
+         * Reads the work items linked from the test cases of all files, before anything is filtered out.
+         */
+        private Map<String, Boolean> collectLinks(List<File> files) throws IOException {
+            Map<String, Boolean> verdicts = new LinkedHashMap<>();
+            int linked = 0;
+            try {
+                for (File file : files) {
+                    linked += XUnitStreams.collectLinks(file, linkProperty, verdicts);
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Could not process test results: " + e.getMessage(), e);
+            }
+            listener.getLogger()
+                    .println(String.format(
+                            "%s test cases link to %s workitems through property %s.",
+                            linked, verdicts.size(), linkProperty));
+            return verdicts;
+        }
+
+        /**
+         * Writes each file to {@code workDir} with the ids of the test cases found in {@link #testCaseIndex}.
+         *
+         * @return the annotated files.
+         */
+        private List<File> annotateTestCaseIds(List<File> files, Map<File, String> names, File workDir)
+                throws IOException, XMLStreamException {
+            TestCaseIndex index = TestCaseIndex.open(new File(testCaseIndex));
+            if (index.size() == 0) {
+                return files;
+            }
+            List<File> annotated = new ArrayList<>();
+            int found = 0;
+            for (File file : files) {
+                File copy = new File(workDir, "ids-" + annotated.size() + "-" + file.getName());
+                found += XUnitStreams.annotateTestCaseIds(file, copy, index);
+                annotated.add(copy);
+                names.put(copy, names.get(file));
+            }
+            listener.getLogger()
+                    .println(String.format(
+                            "%s test cases got their id from the test case index of %s test cases.",
+                            found, index.size()));
+            return annotated;
+        }
+
+        /**
+         * Writes the test cases of each file that changed since {@link #previousIndex} to a file in
+         * {@code workDir} and records the index of this upload in {@code result}.
+         *
+         * @return the files with changed test cases; files without any are dropped.
+         */
+        private List<File> filterChanged(
+                List<File> files, Map<File, String> names, String testRunId, File workDir, PublishResult result)
+                throws IOException, XMLStreamException {
+            DeltaIndex previous = previousIndex != null ? previousIndex : DeltaIndex.empty(testRunId);
+            DeltaIndex.Builder next = new DeltaIndex.Builder(testRunId);
+            XUnitStreams.DeltaSummary summary = new XUnitStreams.DeltaSummary();
+            List<File> changed = new ArrayList<>();
+            for (File file : files) {
+                File delta = new File(workDir, changed.size() + "-" + file.getName());
+                if (XUnitStreams.filterChanged(file, delta, previous, next, summary) > 0) {
+                    changed.add(delta);
+                    names.put(delta, names.get(file));
+                }
+            }
+            summary.removed = Math.max(0, previous.size() - (next.size() - summary.added));
+            listener.getLogger().println("Delta upload: " + summary);
+            result.setDelta(next.build(), summary);
+            return changed;
         }
     }
 
@@ -203,6 +962,10 @@ public class PolarionNotifier extends Notifier {
         public static final String DISPLAY_NAME = "Polarion Test Result Reporter";
         private String url;
         private Secret token;
+        private double requestsPerSecond;
+        private int maxConcurrentRequests;
+        private List<PolarionConnection> connections = new ArrayList<>();
+        private transient volatile PolarionConfig config;
 
         /**
          * In order to load the persisted global configuration, you have to
@@ -210,6 +973,7 @@ public class PolarionNotifier extends Notifier {
          */
         public DescriptorImpl() {
             load();
+            applyConfig();
         }
 
         @Override
@@ -224,8 +988,10 @@ public class PolarionNotifier extends Notifier {
             return true;
         }
 
+        @POST
         public FormValidation doTestConnection(
                 @QueryParameter("url") String url, @QueryParameter("token") String token) {
+            Jenkins.get().checkPermission(Jenkins.ADMINISTER);
             try {
                 PolarionConnector polarionConnector = new PolarionConnector(url, token);
                 polarionConnector.connect();
@@ -239,10 +1005,47 @@ public class PolarionNotifier extends Notifier {
         public boolean configure(StaplerRequest req, JSONObject formData) throws FormException {
             this.url = formData.getString("url");
             this.token = Secret.fromString(formData.getString("token"));
+            this.requestsPerSecond = formData.optDouble("requestsPerSecond", 0);
+            this.maxConcurrentRequests = formData.optInt("maxConcurrentRequests", 0);
+            this.connections = req.bindJSONToList(PolarionConnection.class, formData.get("connections"));
             save();
+            applyConfig();
             return super.configure(req, formData);
         }
 
+        /**
+         * Sets the default connection without a form submission, as the load test harness does.
+         */
+        void setDefaultConnection(String url, Secret token) {
+            this.url = url;
+            this.token = token;
+            save();
+            applyConfig();
+        }
+
+        /**
+         * @return the configuration as of its last save; builds resolve their connection from it once.
+         */
+        public PolarionConfig getConfig() {
+            return config;
+        }
+
+        /**
+         * @return further named connections, to other Polarion servers or clusters.
+         */
+        public List<PolarionConnection> getConnections() {
+            return connections;
+        }
+
+        public ListBoxModel doFillConnectionItems() {
+            ListBoxModel items = new ListBoxModel();
+            items.add("Default", "");
+            for (String name : config.getConnectionNames()) {
+                items.add(name);
+            }
+            return items;
+        }
+
         public String getUrl() {
             return url;
         }
@@ -251,13 +1054,72 @@ public class PolarionNotifier extends Notifier {
             return token;
         }
 
-        public FormValidation doCheckProject(@QueryParameter("project") String project)
+        /**
+         * @return maximum request rate to the Polarion server across all builds, 0 for unlimited.
+         */
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        /**
+         * @return maximum number of concurrent requests to the Polarion server across all builds, 0 for unlimited.
+         */
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        private void applyConfig() {
+            if (connections == null) {
+                connections = new ArrayList<>();
+            }
+            PolarionConfig applied =
+                    new PolarionConfig(url, token, connections, requestsPerSecond, maxConcurrentRequests);
+            for (PolarionConnection connection : applied.getConnections()) {
+                for (String node : connection.getNodeUrls()) {
+                    RequestThrottle.configure(node, requestsPerSecond, maxConcurrentRequests);
+                }
+            }
+            config = applied;
+        }
+
+        /**
+         * Offers the projects of the connection, while still allowing any id or a variable to be typed.
+         */
+        @POST
+        public ComboBoxModel doFillProjectItems(
+                @AncestorInPath Item item, @QueryParameter("connection") String connection) {
+            ComboBoxModel items = new ComboBoxModel();
+            boolean permitted =
+                    item == null ? Jenkins.get().hasPermission(Jenkins.ADMINISTER) : item.hasPermission(Item.CONFIGURE);
+            if (!permitted) {
+                return items;
+            }
+            try {
+                PolarionConnection polarion = config.connection(connection);
+                if (StringUtils.isNotBlank(polarion.getUrl()) && !Secret.toString(polarion.getToken()).isEmpty()) {
+                    items.addAll(polarion.connector().getProjectIds());
+                }
+            } catch (JSONException | IOException | HttpException e) {
+                // no suggestions, Check Project tells what is wrong
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return items;
+        }
+
+        public FormValidation doCheckProject(
+                @QueryParameter("project") String project, @QueryParameter("connection") String connection)
                 throws IOException, InterruptedException {
-            String restToken = token.getPlainText();
-            if (StringUtils.isBlank(url) || StringUtils.isBlank(restToken)) {
+            PolarionConnection polarion;
+            try {
+                polarion = config.connection(connection);
+            } catch (AbortException e) {
+                return FormValidation.error(e.getMessage());
+            }
+            if (StringUtils.isBlank(polarion.getUrl()) || Secret.toString(polarion.getToken()).isEmpty()) {
                 return FormValidation.error(NO_CONNECTION);
             }
-            PolarionConnector polarionConnector = new PolarionConnector(url, restToken);
+            PolarionConnector polarionConnector = polarion.connector();
             try {
                 polarionConnector.checkProject(project);
             } catch (JSONException | IOException | HttpException | InterruptedException e) {
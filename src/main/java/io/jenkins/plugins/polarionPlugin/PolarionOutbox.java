@@ -0,0 +1,389 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import jenkins.model.Jenkins;
+
+/**
+ * Spool on the controller for test results that could not be sent to Polarion, in
+ * {@code JENKINS_HOME/polarion-outbox}. Every entry is a directory holding the result files and an
+ * {@link OutboxEntry}; it is assembled under a hidden name and renamed into place once complete, so
+ * a crash never leaves a partial entry behind. Entries are drained periodically in the order they
+ * were queued, a limited number per server and run; the first failure for a server stops its drain
+ * until the next run, so an unavailable server is not flooded with retries.
+ */
+@Extension
+public class PolarionOutbox extends AsyncPeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(PolarionOutbox.class.getName());
+
+    static final long RECURRENCE_MILLIS = Long.getLong(PolarionOutbox.class.getName() + ".recurrenceMillis", MIN);
+    static final int BATCH_SIZE = Integer.getInteger(PolarionOutbox.class.getName() + ".batchSize", 10);
+    static final long MAX_AGE_MILLIS =
+            TimeUnit.DAYS.toMillis(Long.getLong(PolarionOutbox.class.getName() + ".maxAgeDays", 7));
+
+    private static final String ENTRY_FILE = "entry.xml";
+    private static final String INCOMPLETE_PREFIX = ".incomplete-";
+    private static final String DELIVERED_PREFIX = ".delivered-";
+
+    public PolarionOutbox() {
+        super("Polarion outbox");
+    }
+
+    public static PolarionOutbox get() {
+        return ExtensionList.lookupSingleton(PolarionOutbox.class);
+    }
+
+    public File getDirectory() {
+        return new File(Jenkins.get().getRootDir(), "polarion-outbox");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_MILLIS;
+    }
+
+    static String newId() {
+        return String.format("%013d-%s", System.currentTimeMillis(), UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    /**
+     * Copies the given result files into a new entry.
+     *
+     * @param files result files keyed by their name in the workspace.
+     * @return id of the queued entry.
+     */
+    String enqueue(OutboxEntry entry, Map<String, FilePath> files) throws IOException, InterruptedException {
+        File incomplete = new File(getDirectory(), INCOMPLETE_PREFIX + entry.getId());
+        try {
+            Files.createDirectories(incomplete.toPath());
+            int index = 0;
+            for (Map.Entry<String, FilePath> file : files.entrySet()) {
+                String storedName = String.format("%03d-%s", index++, file.getValue().getName());
+                file.getValue().copyTo(new FilePath(new File(incomplete, storedName)));
+                entry.addFile(storedName, file.getKey());
+            }
+            new XmlFile(new File(incomplete, ENTRY_FILE)).write(entry);
+            Files.move(
+                    incomplete.toPath(),
+                    new File(getDirectory(), entry.getId()).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Util.deleteRecursive(incomplete);
+            throw e;
+        }
+        return entry.getId();
+    }
+
+    /**
+     * @return queued entries, oldest first.
+     */
+    public List<OutboxEntry> getEntries() {
+        List<OutboxEntry> entries = new ArrayList<>();
+        for (File dir : pending()) {
+            OutboxEntry entry = read(dir);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    public int getSize() {
+        return pending().size();
+    }
+
+    private List<File> pending() {
+        File[] dirs = getDirectory().listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
+        if (dirs == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(dirs);
+        return Arrays.asList(dirs);
+    }
+
+    private static OutboxEntry read(File dir) {
+        try {
+            return (OutboxEntry) new XmlFile(new File(dir, ENTRY_FILE)).read();
+        } catch (IOException | ClassCastException e) {
+            LOGGER.log(Level.WARNING, "Unreadable Polarion outbox entry " + dir, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        removeLeftovers();
+        Map<String, Integer> attempted = new HashMap<>();
+        Set<String> unavailable = new HashSet<>();
+        for (File dir : pending()) {
+            OutboxEntry entry = read(dir);
+            if (entry == null) {
+                continue;
+            }
+            if (System.currentTimeMillis() - entry.getCreated() > MAX_AGE_MILLIS) {
+                listener.getLogger()
+                        .println(String.format(
+                                "Dropping %s of %s, not delivered within %s days. Last error: %s",
+                                entry.getId(),
+                                entry.getRunId(),
+                                TimeUnit.MILLISECONDS.toDays(MAX_AGE_MILLIS),
+                                entry.getLastError()));
+                remove(dir);
+                continue;
+            }
+            String server = PolarionHttpClients.serverKey(entry.getUrl());
+            if (unavailable.contains(server) || attempted.getOrDefault(server, 0) >= BATCH_SIZE) {
+                continue;
+            }
+            attempted.merge(server, 1, Integer::sum);
+            try {
+                deliver(dir, entry, listener);
+            } catch (IOException | XMLStreamException | RuntimeException e) {
+                entry.failed(e.getMessage());
+                new XmlFile(new File(dir, ENTRY_FILE)).write(entry);
+                unavailable.add(server);
+                listener.getLogger()
+                        .println(String.format(
+                                "Delivery of %s to %s failed (attempt %s): %s",
+                                entry.getId(), server, entry.getAttempts(), e.getMessage()));
+            }
+        }
+    }
+
+    private void deliver(File dir, OutboxEntry entry, TaskListener listener)
+            throws IOException, InterruptedException, XMLStreamException {
+        XmlFile entryFile = new XmlFile(new File(dir, ENTRY_FILE));
+        PolarionConnector connector = new PolarionConnector(entry.getUrl(), entry.getToken().getPlainText());
+        connector.setCompressUploads(entry.isCompressUploads());
+        connector.setLogger(listener.getLogger());
+        if (entry.getTestRunId() == null) {
+            entry.setTestRunId(connector.createNewTestRun(
+                    entry.getProject(),
+                    entry.getTestRunIdPrefix(),
+                    entry.getTestRunTitle(),
+                    entry.getTestRunType(),
+                    entry.getGroupId()));
+            entryFile.write(entry);
+        }
+        if (entry.isAnnotateTestCaseIds()) {
+            annotateTestCaseIds(dir, entry, listener);
+            entry.testCaseIdsAnnotated();
+            entryFile.write(entry);
+        }
+        XUnitSlimming slimming = entry.slimming();
+        int files = entry.getFiles().size();
+        List<String> separate = new ArrayList<>();
+        List<List<String>> batches = new ArrayList<>();
+        if (entry.isMergeResults()) {
+            // merged documents stay within the upload size limit, like those of the publisher
+            Map<File, String> storedNames = new LinkedHashMap<>();
+            for (String storedName : entry.getFiles().keySet()) {
+                File file = new File(dir, storedName);
+                if (file.length() <= entry.getMaxUploadBytes()) {
+                    storedNames.put(file, storedName);
+                } else {
+                    separate.add(storedName);
+                }
+            }
+            List<File> mergeable = new ArrayList<>(storedNames.keySet());
+            for (List<File> batch : XUnitStreams.batches(mergeable, entry.getMaxUploadBytes())) {
+                List<String> names = new ArrayList<>();
+                batch.forEach(file -> names.add(storedNames.get(file)));
+                if (names.size() == 1) {
+                    separate.addAll(names);
+                } else {
+                    batches.add(names);
+                }
+            }
+        } else {
+            separate.addAll(entry.getFiles().keySet());
+        }
+        ParallelTasks.Results<List<String>, String> merged = ParallelTasks.run(
+                batches, entry.getUploadParallelism(), batch -> uploadMerged(connector, entry, dir, batch, slimming));
+        merged.getSucceeded().forEach((batch, jobId) -> {
+            // the import job covers all files of the batch
+            entry.delivered(batch.get(0), Collections.singletonList(jobId));
+            batch.subList(1, batch.size()).forEach(storedName -> entry.delivered(storedName, List.of()));
+        });
+        ParallelTasks.Results<String, List<String>> uploads = ParallelTasks.run(
+                separate,
+                entry.getUploadParallelism(),
+                storedName -> upload(connector, entry, entryFile, storedName, new File(dir, storedName), slimming));
+        uploads.getSucceeded().forEach(entry::delivered);
+        entryFile.write(entry);
+        if (slimming.isEnabled() && slimming.getBytesIn() > 0) {
+            listener.getLogger()
+                    .println(String.format(
+                            "Slimmed test results of %s from %s to %s bytes.",
+                            entry.getId(), slimming.getBytesIn(), slimming.getBytesOut()));
+        }
+        int failed = uploads.getFailed().size();
+        for (List<String> batch : merged.getFailed().keySet()) {
+            failed += batch.size();
+        }
+        if (failed > 0) {
+            Exception failure = !uploads.getFailed().isEmpty()
+                    ? uploads.getFailed().values().iterator().next()
+                    : merged.getFailed().values().iterator().next();
+            throw new IOException(String.format(
+                    "%s of %s files could not be uploaded: %s",
+                    failed, files, failure.getMessage()));
+        }
+        listener.getLogger()
+                .println(String.format(
+                        "Delivered %s of %s to test run %s, import jobs %s",
+                        entry.getId(), entry.getRunId(), entry.getTestRunId(), entry.getJobIds()));
+        record(entry, connector);
+        remove(dir);
+    }
+
+    /**
+     * Writes the ids found in the test case index of the project into the stored files, in place. This
+     * is done once, before the first upload, so the chunks of a split file stay the same between
+     * delivery attempts. Without a configured connection for the server the index is used as last
+     * refreshed by a build.
+     */
+    private static void annotateTestCaseIds(File dir, OutboxEntry entry, TaskListener listener)
+            throws IOException, InterruptedException, XMLStreamException {
+        PolarionConnection polarion =
+                PolarionWorkItemStatusUpdateBuilder.getGlobalConfig().getConfig().connectionForUrl(entry.getUrl());
+        TestCaseIndex index = TestCaseIndex.open(
+                polarion != null
+                        ? TestCaseIndexes.refresh(polarion, entry.getProject(), listener)
+                        : TestCaseIndexes.file(entry.getUrl(), entry.getProject()));
+        if (index.size() == 0) {
+            return;
+        }
+        int found = 0;
+        for (String storedName : entry.getFiles().keySet()) {
+            File file = new File(dir, storedName);
+            File annotated = new File(dir, storedName + ".ids");
+            found += XUnitStreams.annotateTestCaseIds(file, annotated, index);
+            Files.move(annotated.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        listener.getLogger()
+                .println(String.format(
+                        "%s test cases of %s got their id from the test case index of %s test cases.",
+                        found, entry.getId(), index.size()));
+    }
+
+    private static String uploadMerged(
+            PolarionConnector connector, OutboxEntry entry, File dir, List<String> batch, XUnitSlimming slimming)
+            throws IOException, InterruptedException {
+        List<File> files = new ArrayList<>();
+        batch.forEach(storedName -> files.add(new File(dir, storedName)));
+        return connector.publishResults(
+                () -> XUnitStreams.pipe("Polarion xUnit merge", out -> XUnitStreams.merge(files, out, slimming)),
+                entry.getProject(),
+                entry.getShortTestRunId());
+    }
+
+    private static String publish(PolarionConnector connector, OutboxEntry entry, File file, XUnitSlimming slimming)
+            throws IOException, InterruptedException {
+        return slimming.isEnabled()
+                ? connector.publishResults(
+                        () -> XUnitStreams.pipe("Polarion xUnit slimming", out -> slimming.copy(file, out)),
+                        entry.getProject(),
+                        entry.getShortTestRunId())
+                : connector.publishResults(file, entry.getProject(), entry.getShortTestRunId());
+    }
+
+    /**
+     * Uploads a stored file, split into chunks if it is too large. Every uploaded chunk is recorded in the
+     * entry right away, so a later attempt continues with the first chunk that was not delivered; splitting
+     * the same file with the same limit again yields the same chunks.
+     */
+    private static List<String> upload(
+            PolarionConnector connector,
+            OutboxEntry entry,
+            XmlFile entryFile,
+            String storedName,
+            File file,
+            XUnitSlimming slimming)
+            throws IOException, InterruptedException, XMLStreamException {
+        if (file.length() <= entry.getMaxUploadBytes()) {
+            return Collections.singletonList(publish(connector, entry, file, slimming));
+        }
+        File chunkDir = Files.createTempDirectory("polarion-chunks").toFile();
+        try {
+            Map<String, String> delivered = entry.getDeliveredChunks(storedName);
+            List<String> jobIds = new ArrayList<>();
+            for (File chunk : XUnitStreams.split(file, entry.getMaxUploadBytes(), chunkDir)) {
+                String jobId = delivered.get(chunk.getName());
+                if (jobId == null) {
+                    jobId = publish(connector, entry, chunk, slimming);
+                    entry.chunkDelivered(storedName, chunk.getName(), jobId);
+                    // files of the entry upload in parallel, write one state at a time
+                    synchronized (entry) {
+                        entryFile.write(entry);
+                    }
+                }
+                jobIds.add(jobId);
+            }
+            return jobIds;
+        } finally {
+            Util.deleteRecursive(chunkDir);
+        }
+    }
+
+    /**
+     * Attaches the import jobs to the build the results came from, if it still exists.
+     */
+    private static void record(OutboxEntry entry, PolarionConnector connector) throws IOException {
+        Run<?, ?> run = Run.fromExternalizableId(entry.getRunId());
+        if (run == null || entry.getJobIds().isEmpty()) {
+            return;
+        }
+        PolarionImportAction importAction = new PolarionImportAction(
+                entry.getUrl(), entry.getProject(), entry.getTestRunId(), entry.getJobIds());
+        run.addAction(importAction);
+        run.save();
+        importAction.track(run, connector);
+    }
+
+    /**
+     * Renames the entry out of the way before deleting it, so a crash while deleting cannot leave a
+     * half-deleted entry that would be delivered again.
+     */
+    private void remove(File dir) throws IOException {
+        File delivered = new File(getDirectory(), DELIVERED_PREFIX + dir.getName());
+        Files.move(dir.toPath(), delivered.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Util.deleteRecursive(delivered);
+    }
+
+    private void removeLeftovers() throws IOException {
+        File[] leftovers = getDirectory().listFiles(file -> file.getName().startsWith(DELIVERED_PREFIX)
+                || (file.getName().startsWith(INCOMPLETE_PREFIX)
+                        && System.currentTimeMillis() - file.lastModified() > TimeUnit.HOURS.toMillis(1)));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                Util.deleteRecursive(leftover);
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ComboBoxModel;
+import hudson.util.ListBoxModel;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+
+/**
+ * Pipeline counterpart of {@link PolarionNotifier}: {@code polarionPublish}. The upload runs on a
+ * shared background pool instead of a thread of its own, and the step returns the id of the created
+ * test run.
+ */
+public class PolarionPublishStep extends Step {
+
+    private final String project;
+    private final String testRunIdPrefix;
+    private final String testRunTitle;
+    private final String testRunType;
+    private final String groupId;
+    private final String testResultsXml;
+    private int uploadParallelism = PolarionNotifier.DEFAULT_UPLOAD_PARALLELISM;
+    private boolean mergeResults;
+    private boolean compressUploads;
+    private int maxUploadSizeMb = PolarionNotifier.DEFAULT_MAX_UPLOAD_SIZE_MB;
+    private boolean queueOnFailure;
+    private int timeoutMinutes;
+    private boolean deltaUpload;
+    private boolean dropOutput;
+    private int maxFailureMessageLength;
+    private boolean dropPassedProperties;
+    private boolean sharedTestRun;
+    private String connection;
+    private String passedWorkflowAction;
+    private String failedWorkflowAction;
+    private String linkProperty;
+    private boolean annotateTestCaseIds;
+    private boolean waitForImport = true;
+
+    @DataBoundConstructor
+    public PolarionPublishStep(
+            String project,
+            String testRunIdPrefix,
+            String testRunTitle,
+            String testRunType,
+            String groupId,
+            String testResultsXml) {
+        this.project = project;
+        this.testRunIdPrefix = testRunIdPrefix;
+        this.testRunTitle = testRunTitle;
+        this.testRunType = testRunType;
+        this.groupId = groupId;
+        this.testResultsXml = testResultsXml;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getTestRunIdPrefix() {
+        return testRunIdPrefix;
+    }
+
+    public String getTestRunTitle() {
+        return testRunTitle;
+    }
+
+    public String getTestRunType() {
+        return testRunType;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getTestResultsXml() {
+        return testResultsXml;
+    }
+
+    public int getUploadParallelism() {
+        return uploadParallelism;
+    }
+
+    @DataBoundSetter
+    public void setUploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = uploadParallelism;
+    }
+
+    public boolean isMergeResults() {
+        return mergeResults;
+    }
+
+    @DataBoundSetter
+    public void setMergeResults(boolean mergeResults) {
+        this.mergeResults = mergeResults;
+    }
+
+    public boolean isCompressUploads() {
+        return compressUploads;
+    }
+
+    @DataBoundSetter
+    public void setCompressUploads(boolean compressUploads) {
+        this.compressUploads = compressUploads;
+    }
+
+    public int getMaxUploadSizeMb() {
+        return maxUploadSizeMb;
+    }
+
+    @DataBoundSetter
+    public void setMaxUploadSizeMb(int maxUploadSizeMb) {
+        this.maxUploadSizeMb = maxUploadSizeMb;
+    }
+
+    public boolean isQueueOnFailure() {
+        return queueOnFailure;
+    }
+
+    @DataBoundSetter
+    public void setQueueOnFailure(boolean queueOnFailure) {
+        this.queueOnFailure = queueOnFailure;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    public boolean isDeltaUpload() {
+        return deltaUpload;
+    }
+
+    @DataBoundSetter
+    public void setDeltaUpload(boolean deltaUpload) {
+        this.deltaUpload = deltaUpload;
+    }
+
+    public boolean isDropOutput() {
+        return dropOutput;
+    }
+
+    @DataBoundSetter
+    public void setDropOutput(boolean dropOutput) {
+        this.dropOutput = dropOutput;
+    }
+
+    public int getMaxFailureMessageLength() {
+        return maxFailureMessageLength;
+    }
+
+    @DataBoundSetter
+    public void setMaxFailureMessageLength(int maxFailureMessageLength) {
+        this.maxFailureMessageLength = maxFailureMessageLength;
+    }
+
+    public boolean isDropPassedProperties() {
+        return dropPassedProperties;
+    }
+
+    @DataBoundSetter
+    public void setDropPassedProperties(boolean dropPassedProperties) {
+        this.dropPassedProperties = dropPassedProperties;
+    }
+
+    public boolean isSharedTestRun() {
+        return sharedTestRun;
+    }
+
+    @DataBoundSetter
+    public void setSharedTestRun(boolean sharedTestRun) {
+        this.sharedTestRun = sharedTestRun;
+    }
+
+    public String getConnection() {
+        return connection;
+    }
+
+    @DataBoundSetter
+    public void setConnection(String connection) {
+        this.connection = Util.fixEmptyAndTrim(connection);
+    }
+
+    public String getPassedWorkflowAction() {
+        return passedWorkflowAction;
+    }
+
+    @DataBoundSetter
+    public void setPassedWorkflowAction(String passedWorkflowAction) {
+        this.passedWorkflowAction = Util.fixEmptyAndTrim(passedWorkflowAction);
+    }
+
+    public String getFailedWorkflowAction() {
+        return failedWorkflowAction;
+    }
+
+    @DataBoundSetter
+    public void setFailedWorkflowAction(String failedWorkflowAction) {
+        this.failedWorkflowAction = Util.fixEmptyAndTrim(failedWorkflowAction);
+    }
+
+    public String getLinkProperty() {
+        return linkProperty;
+    }
+
+    @DataBoundSetter
+    public void setLinkProperty(String linkProperty) {
+        this.linkProperty = Util.fixEmptyAndTrim(linkProperty);
+    }
+
+    public boolean isAnnotateTestCaseIds() {
+        return annotateTestCaseIds;
+    }
+
+    @DataBoundSetter
+    public void setAnnotateTestCaseIds(boolean annotateTestCaseIds) {
+        this.annotateTestCaseIds = annotateTestCaseIds;
+    }
+
+    /**
+     * @return whether the step waits until Polarion finished the import jobs; otherwise it returns
+     *     as soon as the results are uploaded and the jobs are tracked in the background.
+     */
+    public boolean isWaitForImport() {
+        return waitForImport;
+    }
+
+    @DataBoundSetter
+    public void setWaitForImport(boolean waitForImport) {
+        this.waitForImport = waitForImport;
+    }
+
+    PolarionNotifier toNotifier() {
+        PolarionNotifier notifier =
+                new PolarionNotifier(project, testRunIdPrefix, testRunTitle, testRunType, groupId, testResultsXml);
+        notifier.setUploadParallelism(uploadParallelism);
+        notifier.setMergeResults(mergeResults);
+        notifier.setCompressUploads(compressUploads);
+        notifier.setMaxUploadSizeMb(maxUploadSizeMb);
+        notifier.setQueueOnFailure(queueOnFailure);
+        notifier.setTimeoutMinutes(timeoutMinutes);
+        notifier.setDeltaUpload(deltaUpload);
+        notifier.setDropOutput(dropOutput);
+        notifier.setMaxFailureMessageLength(maxFailureMessageLength);
+        notifier.setDropPassedProperties(dropPassedProperties);
+        notifier.setSharedTestRun(sharedTestRun);
+        notifier.setConnection(connection);
+        notifier.setPassedWorkflowAction(passedWorkflowAction);
+        notifier.setFailedWorkflowAction(failedWorkflowAction);
+        notifier.setLinkProperty(linkProperty);
+        notifier.setAnnotateTestCaseIds(annotateTestCaseIds);
+        return notifier;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    private static final class Execution extends StepExecution {
+
+        private static final long serialVersionUID = 1L;
+        private final transient PolarionPublishStep step;
+        private transient volatile Future<?> upload;
+        private transient volatile String status;
+        // the step completes once, whether the upload ends or the step is stopped first
+        private final transient AtomicBoolean done = new AtomicBoolean();
+
+        Execution(PolarionPublishStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            StepContext context = getContext();
+            Run<?, ?> run = context.get(Run.class);
+            FilePath workspace = context.get(FilePath.class);
+            EnvVars env = context.get(EnvVars.class);
+            TaskListener listener = context.get(TaskListener.class);
+            PolarionNotifier notifier = step.toNotifier();
+            status = "waiting for a Polarion publisher thread";
+            upload = PolarionExecutors.publishers().submit(() -> {
+                try {
+                    status = "uploading test results";
+                    PublishResult result = notifier.upload(run, workspace, env, listener);
+                    if (result.isFailed()) {
+                        notifier.record(run, result, listener);
+                        fail(new AbortException(
+                                result.getWorkflowFailures().isEmpty()
+                                        ? String.format(
+                                                "%s result files could not be uploaded: %s",
+                                                result.getFailures().size(),
+                                                String.join(", ", result.getFailures().keySet()))
+                                        : String.format(
+                                                "Workflow actions failed for %s linked workitems: %s",
+                                                result.getWorkflowFailures().size(),
+                                                String.join(", ", result.getWorkflowFailures().keySet()))));
+                        return;
+                    }
+                    if (!step.isWaitForImport()) {
+                        notifier.record(run, result, listener);
+                        succeed(result.getTestRunId());
+                        return;
+                    }
+                    status = "waiting for Polarion import jobs";
+                    notifier.record(run, result, listener).whenComplete((action, error) -> {
+                        if (error != null) {
+                            fail(error);
+                        } else if (action != null && action.getFailedCount() > 0) {
+                            fail(new AbortException(String.format(
+                                    "%s of %s Polarion import jobs failed",
+                                    action.getFailedCount(),
+                                    action.getJobIds().size())));
+                        } else {
+                            succeed(result.getTestRunId());
+                        }
+                    });
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            });
+            return false;
+        }
+
+        private void succeed(Object result) {
+            if (done.compareAndSet(false, true)) {
+                getContext().onSuccess(result);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (done.compareAndSet(false, true)) {
+                getContext().onFailure(error);
+            }
+        }
+
+        @Override
+        public void stop(Throwable cause) throws Exception {
+            Future<?> task = upload;
+            if (task != null) {
+                task.cancel(true);
+            }
+            fail(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new AbortException("Polarion upload was interrupted by a restart of Jenkins"));
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, FilePath.class, EnvVars.class, TaskListener.class);
+        }
+
+        public ListBoxModel doFillConnectionItems() {
+            return PolarionWorkItemStatusUpdateBuilder.getGlobalConfig().doFillConnectionItems();
+        }
+
+        @POST
+        public ComboBoxModel doFillProjectItems(
+                @AncestorInPath Item item, @QueryParameter("connection") String connection) {
+            return PolarionWorkItemStatusUpdateBuilder.getGlobalConfig().doFillProjectItems(item, connection);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "polarionPublish";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Publish test results to Polarion";
+        }
+    }
+}
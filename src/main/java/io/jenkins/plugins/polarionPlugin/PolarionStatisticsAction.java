@@ -0,0 +1,93 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Administrator page showing how the plugin talks to Polarion servers.
+ */
+@Extension
+public class PolarionStatisticsAction implements RootAction {
+
+    @Override
+    public String getIconFileName() {
+        return Jenkins.get().hasPermission(Jenkins.ADMINISTER) ? "graph.png" : null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Polarion Statistics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "polarion-statistics";
+    }
+
+    public long getClientsOpened() {
+        return PolarionHttpClients.getOpened();
+    }
+
+    public long getClientsReused() {
+        return PolarionHttpClients.getReused();
+    }
+
+    public List<String> getServers() {
+        return PolarionHttpClients.getServers();
+    }
+
+    public Iterable<ConnectorMetrics> getEndpoints() {
+        return ConnectorMetrics.all();
+    }
+
+    public boolean isVirtualThreads() {
+        return PolarionExecutors.isVirtualThreads();
+    }
+
+    public long getRetries() {
+        return PolarionConnector.getRetryCount();
+    }
+
+    public Map<String, CircuitBreaker.State> getCircuitBreakers() {
+        return CircuitBreaker.states();
+    }
+
+    public Map<String, NodeHealth> getNodes() {
+        return NodeHealth.all();
+    }
+
+    public Map<String, RequestThrottle> getThrottles() {
+        return RequestThrottle.all();
+    }
+
+    public List<PolarionCache<?, ?>> getCaches() {
+        return PolarionCache.all();
+    }
+
+    public List<ResourceValidators<?>> getValidators() {
+        return ResourceValidators.all();
+    }
+
+    public PolarionOutbox getOutbox() {
+        return PolarionOutbox.get();
+    }
+
+    @RequirePOST
+    public HttpResponse doClearCaches() throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        for (PolarionCache<?, ?> cache : PolarionCache.all()) {
+            cache.invalidateAll();
+        }
+        for (ResourceValidators<?> validators : ResourceValidators.all()) {
+            validators.invalidateAll();
+        }
+        return HttpResponses.redirectToDot();
+    }
+}
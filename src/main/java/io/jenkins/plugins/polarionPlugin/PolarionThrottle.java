@@ -0,0 +1,20 @@
+package io.jenkins.plugins.polarionPlugin;
+
+/**
+ * Admission control for requests to a Polarion server. Agents receive a remoting proxy of the
+ * controller's instance, so limits hold across all builds no matter where the request is sent from.
+ */
+public interface PolarionThrottle {
+
+    /**
+     * Blocks until the request may be sent. Every successful call must be paired with {@link #release()}.
+     */
+    void acquire() throws InterruptedException;
+
+    /**
+     * @return {@code true} if the request may be sent right away, {@code false} if the caller should try later.
+     */
+    boolean tryAcquire();
+
+    void release();
+}
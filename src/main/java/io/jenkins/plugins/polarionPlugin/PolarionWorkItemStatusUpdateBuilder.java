@@ -1,30 +1,48 @@
 package io.jenkins.plugins.polarionPlugin;
 
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractProject;
+import hudson.model.Item;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
+import hudson.util.ComboBoxModel;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import hudson.util.Secret;
 import io.jenkins.plugins.polarionPlugin.PolarionNotifier.DescriptorImpl;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
+import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
 
 public class PolarionWorkItemStatusUpdateBuilder extends Builder implements SimpleBuildStep {
 
     public String projectId;
     public String workItemId;
     public String workflowAction;
+    private String query;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private String connection;
     public static final String DISPLAY_NAME = "Polarion WorkItem Status Updater";
+    public static final int DEFAULT_PARALLELISM = 8;
 
     @DataBoundConstructor
     public PolarionWorkItemStatusUpdateBuilder(String projectId, String workItemId, String workflowAction) {
@@ -45,29 +63,103 @@ public class PolarionWorkItemStatusUpdateBuilder extends Builder implements Simp
         return workflowAction;
     }
 
+    public String getQuery() {
+        return query;
+    }
+
+    @DataBoundSetter
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getParallelism() {
+        return parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+    }
+
+    @DataBoundSetter
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return name of the connection to use, blank for the default one.
+     */
+    public String getConnection() {
+        return connection;
+    }
+
+    @DataBoundSetter
+    public void setConnection(String connection) {
+        this.connection = Util.fixEmptyAndTrim(connection);
+    }
+
     @Override
     public void perform(Run<?, ?> run, FilePath workspace, EnvVars env, Launcher launcher, TaskListener listener)
             throws InterruptedException, IOException {
-        DescriptorImpl globalConfig = getGlobalConfig();
-        PolarionConnector polarionConnector = new PolarionConnector(
-                globalConfig.getUrl(), globalConfig.getToken().getPlainText());
-        String actualID =
-                workItemId.startsWith("$") ? getParameter(run, listener, workItemId.substring(1)) : workItemId;
-        listener.getLogger().println(DISPLAY_NAME +" - attempting to trigger workflow action(" +workflowAction+") for workitem -"+actualID);
-        polarionConnector.updateWorkItemWithWorkFlow(projectId, actualID, workflowAction);
-        listener.getLogger().println(DISPLAY_NAME +" - Trigger workflow action(" +workflowAction+") for workitem -"+actualID+" successful.");
+        PolarionConnector polarionConnector = getGlobalConfig().getConfig().connection(connection).connector();
+        polarionConnector.setLogger(listener.getLogger());
+        List<String> workItemIds = resolveWorkItemIds(env, listener, polarionConnector);
+        if (workItemIds.isEmpty()) {
+            listener.getLogger().println(DISPLAY_NAME + " - no workitems to update.");
+            return;
+        }
+        listener.getLogger()
+                .println(DISPLAY_NAME + " - attempting to trigger workflow action(" + workflowAction + ") for "
+                        + workItemIds.size() + " workitem(s) - " + String.join(", ", workItemIds));
+
+        long start = System.currentTimeMillis();
+        ParallelTasks.Results<String, String> results = ParallelTasks.run(workItemIds, getParallelism(), id -> {
+            polarionConnector.updateWorkItemWithWorkFlow(projectId, id, workflowAction);
+            return id;
+        });
+        long time = System.currentTimeMillis() - start;
+
+        results.getFailed()
+                .forEach((id, e) -> listener.getLogger()
+                        .println(DISPLAY_NAME + " - Trigger workflow action(" + workflowAction + ") for workitem -" + id
+                                + " failed: " + e.getMessage()));
+        listener.getLogger()
+                .println(String.format(
+                        "%s - workflow action(%s) succeeded for %s and failed for %s workitem(s). Took %sms",
+                        DISPLAY_NAME,
+                        workflowAction,
+                        results.getSucceeded().size(),
+                        results.getFailed().size(),
+                        time));
+        if (!results.getFailed().isEmpty()) {
+            throw new AbortException(DISPLAY_NAME + " - workflow action(" + workflowAction + ") failed for "
+                    + String.join(", ", results.getFailed().keySet()));
+        }
     }
 
-    private String getParameter(Run<?, ?> run, TaskListener listener, String paramKey)
+    /**
+     * Work item ids may be given as a comma or whitespace separated list (environment variables are
+     * expanded) and/or as a Polarion query; duplicates are dropped.
+     */
+    private List<String> resolveWorkItemIds(EnvVars env, TaskListener listener, PolarionConnector polarionConnector)
             throws IOException, InterruptedException {
-        return run.getEnvironment(listener).get(paramKey);
+        Set<String> ids = new LinkedHashSet<>();
+        if (StringUtils.isNotBlank(workItemId)) {
+            Arrays.stream(env.expand(workItemId).split("[,\\s]+"))
+                    .filter(StringUtils::isNotBlank)
+                    .forEach(ids::add);
+        }
+        if (StringUtils.isNotBlank(query)) {
+            String expandedQuery = env.expand(query);
+            List<String> matched = polarionConnector.queryWorkItemIds(projectId, expandedQuery);
+            listener.getLogger()
+                    .println(DISPLAY_NAME + " - query '" + expandedQuery + "' matched " + matched.size()
+                            + " workitem(s).");
+            ids.addAll(matched);
+        }
+        return new ArrayList<>(ids);
     }
 
+    /**
+     * @return the global configuration; it is kept up to date in memory, see {@link DescriptorImpl#getConfig()}.
+     */
     public static DescriptorImpl getGlobalConfig() {
-        @SuppressWarnings("deprecation")
-        DescriptorImpl descriptor = (DescriptorImpl) Jenkins.getInstance().getDescriptor(PolarionNotifier.class);
-        descriptor.load();
-        return descriptor;
+        return Jenkins.get().getDescriptorByType(DescriptorImpl.class);
     }
 
     @Extension
@@ -77,23 +169,43 @@ public class PolarionWorkItemStatusUpdateBuilder extends Builder implements Simp
         
         public static final String DISPLAY_NAME = "Polarion WorkItem Status Updater";
         public FormValidation doCheckWorkItem(
-                @QueryParameter("projectId") String projectId, @QueryParameter("workItemId") String workItemId)
+                @QueryParameter("projectId") String projectId,
+                @QueryParameter("workItemId") String workItemId,
+                @QueryParameter("connection") String connection)
                 throws IOException, InterruptedException {
-            DescriptorImpl globalConfig = getGlobalConfig();
-            String url = globalConfig.getUrl();
-            String token = globalConfig.getToken().getPlainText();
-            if (StringUtils.isBlank(url) || StringUtils.isBlank(token)) {
+            PolarionConnection polarion;
+            try {
+                polarion = getGlobalConfig().getConfig().connection(connection);
+            } catch (AbortException e) {
+                return FormValidation.error(e.getMessage());
+            }
+            if (StringUtils.isBlank(polarion.getUrl()) || Secret.toString(polarion.getToken()).isEmpty()) {
                 return FormValidation.error(NO_CONNECTION);
             }
-            PolarionConnector polarionConnector = new PolarionConnector(url, token);
+            PolarionConnector polarionConnector = polarion.connector();
             try {
-                polarionConnector.checkWorkItem(projectId, workItemId);
+                for (String id : StringUtils.defaultString(workItemId).split("[,\\s]+")) {
+                    // variables are only known at build time
+                    if (StringUtils.isNotBlank(id) && !id.contains("$")) {
+                        polarionConnector.checkWorkItem(projectId, id);
+                    }
+                }
             } catch (JSONException | IOException | HttpException | InterruptedException e) {
                 return FormValidation.error("Connection error : " + e.getMessage());
             }
             return FormValidation.ok();
         }
 
+        public ListBoxModel doFillConnectionItems() {
+            return getGlobalConfig().doFillConnectionItems();
+        }
+
+        @POST
+        public ComboBoxModel doFillProjectIdItems(
+                @AncestorInPath Item item, @QueryParameter("connection") String connection) {
+            return getGlobalConfig().doFillProjectItems(item, connection);
+        }
+
         @Override
         public String getDisplayName() {
             return PolarionWorkItemStatusUpdateBuilder.DISPLAY_NAME;
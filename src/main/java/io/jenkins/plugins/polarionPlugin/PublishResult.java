@@ -0,0 +1,123 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of uploading test results to a single test run, sent back from the agent to the controller.
+ */
+public class PublishResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String testRunId;
+    private final List<String> jobIds = new ArrayList<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+    private final Set<String> failedFiles = new LinkedHashSet<>();
+    private String queuedEntry;
+    private DeltaIndex deltaIndex;
+    private XUnitStreams.DeltaSummary deltaSummary;
+    private final Map<String, Boolean> linkedWorkItems = new LinkedHashMap<>();
+    private final Map<String, String> workflowFailures = new LinkedHashMap<>();
+
+    public PublishResult(String testRunId) {
+        this.testRunId = testRunId;
+    }
+
+    /**
+     * @return id of the created test run, {@code null} if the results were queued before it could be created.
+     */
+    public String getTestRunId() {
+        return testRunId;
+    }
+
+    public List<String> getJobIds() {
+        return Collections.unmodifiableList(jobIds);
+    }
+
+    /**
+     * @return error message per file that could not be uploaded.
+     */
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return result files, relative to the workspace, of which at least one upload failed.
+     */
+    public Set<String> getFailedFiles() {
+        return Collections.unmodifiableSet(failedFiles);
+    }
+
+    /**
+     * @return id of the {@link PolarionOutbox} entry holding the results that could not be uploaded.
+     */
+    public String getQueuedEntry() {
+        return queuedEntry;
+    }
+
+    void setQueuedEntry(String queuedEntry) {
+        this.queuedEntry = queuedEntry;
+    }
+
+    /**
+     * @return whether some results were neither uploaded nor queued for a later upload, or a workflow
+     *     action on a linked work item failed.
+     */
+    public boolean isFailed() {
+        return (!failures.isEmpty() && queuedEntry == null) || !workflowFailures.isEmpty();
+    }
+
+    /**
+     * @return work items linked from the uploaded test cases, mapped to whether all of those passed.
+     */
+    public Map<String, Boolean> getLinkedWorkItems() {
+        return Collections.unmodifiableMap(linkedWorkItems);
+    }
+
+    void setLinkedWorkItems(Map<String, Boolean> linkedWorkItems) {
+        this.linkedWorkItems.putAll(linkedWorkItems);
+    }
+
+    /**
+     * @return error message per linked work item whose workflow action failed.
+     */
+    public Map<String, String> getWorkflowFailures() {
+        return Collections.unmodifiableMap(workflowFailures);
+    }
+
+    void addWorkflowFailure(String workItemId, String message) {
+        workflowFailures.put(workItemId, message);
+    }
+
+    /**
+     * @return index of all test cases seen by a delta upload, to compare the next upload against.
+     */
+    DeltaIndex getDeltaIndex() {
+        return deltaIndex;
+    }
+
+    XUnitStreams.DeltaSummary getDeltaSummary() {
+        return deltaSummary;
+    }
+
+    void setDelta(DeltaIndex deltaIndex, XUnitStreams.DeltaSummary deltaSummary) {
+        this.deltaIndex = deltaIndex;
+        this.deltaSummary = deltaSummary;
+    }
+
+    void addJobId(String jobId) {
+        jobIds.add(jobId);
+    }
+
+    void addFailure(String name, String file, String message) {
+        failures.put(name, message);
+        failedFiles.add(file);
+    }
+}
@@ -0,0 +1,137 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket rate limit plus a cap on in-flight requests for one Polarion server. Waiting callers
+ * are served in arrival order. A limit of 0 means unlimited.
+ */
+public final class RequestThrottle implements PolarionThrottle {
+
+    private static final ConcurrentMap<String, RequestThrottle> THROTTLES = new ConcurrentHashMap<>();
+
+    private final double requestsPerSecond;
+    private final int maxConcurrentRequests;
+    private final Semaphore inFlight;
+    private final ReentrantLock bucketLock = new ReentrantLock(true);
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    RequestThrottle(double requestsPerSecond, int maxConcurrentRequests) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.inFlight = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+        this.tokens = burst();
+    }
+
+    static RequestThrottle forUrl(String url) {
+        return THROTTLES.computeIfAbsent(PolarionHttpClients.serverKey(url), k -> new RequestThrottle(0, 0));
+    }
+
+    /**
+     * Replaces the limits for a server. Requests already admitted finish against the previous limits.
+     */
+    static void configure(String url, double requestsPerSecond, int maxConcurrentRequests) {
+        THROTTLES.put(
+                PolarionHttpClients.serverKey(url),
+                new RequestThrottle(Math.max(0, requestsPerSecond), Math.max(0, maxConcurrentRequests)));
+    }
+
+    public static Map<String, RequestThrottle> all() {
+        return new TreeMap<>(THROTTLES);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        if (inFlight != null) {
+            inFlight.acquire();
+        }
+        if (requestsPerSecond <= 0) {
+            return;
+        }
+        try {
+            bucketLock.lockInterruptibly();
+            try {
+                refill();
+                if (tokens < 1) {
+                    // holding the fair lock while waiting keeps later callers queued behind this one
+                    long waitNanos = (long) ((1 - tokens) / requestsPerSecond * TimeUnit.SECONDS.toNanos(1));
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    refill();
+                }
+                tokens -= 1;
+            } finally {
+                bucketLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            if (inFlight != null) {
+                inFlight.release();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            return false;
+        }
+        if (requestsPerSecond <= 0) {
+            return true;
+        }
+        if (bucketLock.tryLock()) {
+            try {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+            } finally {
+                bucketLock.unlock();
+            }
+        }
+        if (inFlight != null) {
+            inFlight.release();
+        }
+        return false;
+    }
+
+    @Override
+    public void release() {
+        if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst(), tokens + (now - refilledAt) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+    }
+
+    private double burst() {
+        return Math.max(1, requestsPerSecond);
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getInFlight() {
+        return inFlight == null ? 0 : maxConcurrentRequests - inFlight.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return (inFlight == null ? 0 : inFlight.getQueueLength()) + bucketLock.getQueueLength();
+    }
+}
@@ -0,0 +1,136 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validators ({@code ETag} and {@code Last-Modified}) of Polarion resources read before, together
+ * with what was read from them, so the next read can be a conditional request and a
+ * {@code 304 Not Modified} response reuses the earlier result. Least recently used entries are evicted.
+ */
+public final class ResourceValidators<V> {
+
+    private static final List<ResourceValidators<?>> ALL = new CopyOnWriteArrayList<>();
+
+    private static final class Validated<V> {
+        private final String etag;
+        private final String lastModified;
+        private final V value;
+
+        Validated(String etag, String lastModified, V value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+
+    private final String name;
+    private final Map<String, Validated<V>> entries;
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong modified = new AtomicLong();
+
+    ResourceValidators(String name, int maxSize) {
+        this.name = name;
+        this.entries = new LinkedHashMap<String, Validated<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Validated<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        ALL.add(this);
+    }
+
+    public static List<ResourceValidators<?>> all() {
+        return Collections.unmodifiableList(ALL);
+    }
+
+    /**
+     * Adds {@code If-None-Match} and {@code If-Modified-Since} headers for the validators stored for {@code key}.
+     */
+    HttpRequest.Builder conditional(String key, HttpRequest.Builder request) {
+        Validated<V> validated;
+        synchronized (entries) {
+            validated = entries.get(key);
+        }
+        if (validated != null) {
+            if (validated.etag != null) {
+                request.header("If-None-Match", validated.etag);
+            }
+            if (validated.lastModified != null) {
+                request.header("If-Modified-Since", validated.lastModified);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Call for a {@code 304} response.
+     *
+     * @return value read with the validators of {@code key}, null if they were evicted meanwhile.
+     */
+    V notModified(String key) {
+        notModified.incrementAndGet();
+        synchronized (entries) {
+            Validated<V> validated = entries.get(key);
+            return validated != null ? validated.value : null;
+        }
+    }
+
+    /**
+     * Call for a successful response: stores its validators with {@code value}, or forgets the
+     * resource if it has none.
+     *
+     * @return {@code value}.
+     */
+    V modified(String key, HttpResponse<?> response, V value) {
+        modified.incrementAndGet();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        synchronized (entries) {
+            if (etag == null && lastModified == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, new Validated<>(etag, lastModified, value));
+            }
+        }
+        return value;
+    }
+
+    void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return number of conditional requests answered with {@code 304 Not Modified}.
+     */
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    /**
+     * @return number of requests answered with a full response.
+     */
+    public long getModified() {
+        return modified.get();
+    }
+}
@@ -0,0 +1,31 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.model.InvisibleAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test runs shared by all uploads of a build, its matrix cells and parallel stages, kept on the root
+ * build so that uploads after a restart of Jenkins still go into the same test run. Keyed by
+ * server, project and test run id prefix.
+ */
+public class SharedTestRunAction extends InvisibleAction {
+
+    private final Map<String, String> testRuns = new HashMap<>();
+
+    synchronized String get(String key) {
+        return testRuns.get(key);
+    }
+
+    synchronized void put(String key, String testRunId) {
+        testRuns.put(key, testRunId);
+    }
+
+    /**
+     * @return ids of the shared test runs, including the project prefix.
+     */
+    public synchronized Map<String, String> getTestRuns() {
+        return Collections.unmodifiableMap(new HashMap<>(testRuns));
+    }
+}
@@ -0,0 +1,198 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test cases of one Polarion project by title, kept in a memory-mapped file: a header, the sorted
+ * 64-bit hashes of all titles, the offset of each id and the ids themselves. Lookups hash the title
+ * parts in place and binary search the mapped hashes, so they allocate nothing; only the found id is
+ * decoded.
+ */
+final class TestCaseIndex {
+
+    private static final int MAGIC = 0x50544349;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    private static final TestCaseIndex EMPTY = new TestCaseIndex(ByteBuffer.allocate(0), 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final long updated;
+    private final long completed;
+    private final int size;
+    private final int offsetsStart;
+    private final int idsStart;
+
+    private TestCaseIndex(ByteBuffer buffer, long updated, long completed, int size) {
+        this.buffer = buffer;
+        this.updated = updated;
+        this.completed = completed;
+        this.size = size;
+        this.offsetsStart = HEADER_BYTES + size * 8;
+        this.idsStart = offsetsStart + size * 4;
+    }
+
+    /**
+     * @return the index stored in {@code file}, empty if there is none or it is unreadable.
+     */
+    static TestCaseIndex open(File file) {
+        if (!file.isFile()) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+                return EMPTY;
+            }
+            return new TestCaseIndex(buffer, buffer.getLong(8), buffer.getLong(16), buffer.getInt(24));
+        } catch (IOException e) {
+            return EMPTY;
+        }
+    }
+
+    /**
+     * @return time of the last refresh, 0 if there was none.
+     */
+    long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return time of the last complete refresh, which also dropped deleted test cases.
+     */
+    long getCompleted() {
+        return completed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return slot of the test case titled {@code classname.name}, -1 if it is unknown.
+     */
+    int find(CharSequence classname, CharSequence name) {
+        long key = key(classname, name);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long candidate = buffer.getLong(HEADER_BYTES + mid * 8);
+            if (candidate < key) {
+                low = mid + 1;
+            } else if (candidate > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return id, without project, of the test case in {@code slot}.
+     */
+    String id(int slot) {
+        int from = buffer.getInt(offsetsStart + slot * 4);
+        int to = slot + 1 < size ? buffer.getInt(offsetsStart + (slot + 1) * 4) : buffer.limit() - idsStart;
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(idsStart + from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-16 units of {@code classname + "." + name}, without building that string.
+     */
+    static long key(CharSequence classname, CharSequence name) {
+        long hash = 0xcbf29ce484222325L;
+        if (classname != null && classname.length() > 0) {
+            hash = hash(hash, classname);
+            hash = (hash ^ '.') * 0x100000001b3L;
+        }
+        return name != null ? hash(hash, name) : hash;
+    }
+
+    /**
+     * @return hash of a whole title, equal to {@link #key} of its class name and name.
+     */
+    static long key(CharSequence title) {
+        return hash(0xcbf29ce484222325L, title);
+    }
+
+    private static long hash(long hash, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Collects the entries of a new version of an index, starting from an existing one.
+     */
+    static final class Builder {
+        private final Map<Long, String> ids = new HashMap<>();
+
+        Builder() {}
+
+        Builder(TestCaseIndex base) {
+            for (int slot = 0; slot < base.size; slot++) {
+                ids.put(base.buffer.getLong(HEADER_BYTES + slot * 8), base.id(slot));
+            }
+        }
+
+        void put(String title, String id) {
+            ids.put(key(title), id);
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        /**
+         * Writes the index to a temporary file and moves it over {@code file}. Readers that mapped the
+         * previous version keep reading it.
+         */
+        void write(File file, long updated, long completed) throws IOException {
+            long[] keys = ids.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            byte[][] values = new byte[keys.length][];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = ids.get(keys[i]).getBytes(StandardCharsets.UTF_8);
+            }
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(updated);
+                out.writeLong(completed);
+                out.writeInt(keys.length);
+                for (long key : keys) {
+                    out.writeLong(key);
+                }
+                int offset = 0;
+                for (byte[] value : values) {
+                    out.writeInt(offset);
+                    offset += value.length;
+                }
+                for (byte[] value : values) {
+                    out.write(value);
+                }
+            }
+            Files.move(
+                    tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
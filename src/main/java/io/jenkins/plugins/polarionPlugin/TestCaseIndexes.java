@@ -0,0 +1,81 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+
+/**
+ * The {@link TestCaseIndex} of every project on the controller, in
+ * {@code JENKINS_HOME/polarion-testcase-index/<server>/<project>.idx}. An index is refreshed at most
+ * every few minutes, with the test cases updated since the last refresh, and completely once a day,
+ * which also drops deleted test cases.
+ */
+final class TestCaseIndexes {
+
+    static final long REFRESH_MILLIS = Long.getLong(TestCaseIndexes.class.getName() + ".refreshMillis", 300_000L);
+    static final long COMPLETE_REFRESH_MILLIS =
+            Long.getLong(TestCaseIndexes.class.getName() + ".completeRefreshMillis", TimeUnit.DAYS.toMillis(1));
+    static final String QUERY = System.getProperty(TestCaseIndexes.class.getName() + ".query", "type:testcase");
+
+    private static final ConcurrentMap<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private TestCaseIndexes() {}
+
+    static File file(String url, String project) {
+        File root = new File(Jenkins.get().getRootDir(), "polarion-testcase-index");
+        File server = new File(root, safeName(PolarionHttpClients.serverKey(url)));
+        return new File(server, safeName(project) + ".idx");
+    }
+
+    static String safeName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Brings the index of {@code project} up to date, unless it was refreshed recently. Concurrent
+     * builds wait for a refresh in progress instead of starting their own.
+     *
+     * @return the index file.
+     */
+    static File refresh(PolarionConnection connection, String project, TaskListener listener)
+            throws IOException, InterruptedException {
+        File file = file(connection.getUrl(), project);
+        synchronized (LOCKS.computeIfAbsent(file.getPath(), k -> new Object())) {
+            TestCaseIndex current = TestCaseIndex.open(file);
+            long now = System.currentTimeMillis();
+            if (now - current.getUpdated() < REFRESH_MILLIS) {
+                return file;
+            }
+            boolean complete = now - current.getCompleted() >= COMPLETE_REFRESH_MILLIS;
+            TestCaseIndex.Builder next = complete ? new TestCaseIndex.Builder() : new TestCaseIndex.Builder(current);
+            String query = QUERY;
+            if (!complete) {
+                // Polarion compares dates by day; a day of overlap covers time zone differences
+                String since = new SimpleDateFormat("yyyyMMdd")
+                        .format(new Date(current.getUpdated() - TimeUnit.DAYS.toMillis(1)));
+                query += " AND updated:[" + since + " TO 30000000]";
+            }
+            PolarionConnector connector = connection.connector();
+            connector.setLogger(listener.getLogger());
+            int[] fetched = new int[1];
+            connector.forEachWorkItemTitle(project, query, (id, title) -> {
+                next.put(title, id);
+                fetched[0]++;
+            });
+            Files.createDirectories(file.getParentFile().toPath());
+            next.write(file, now, complete ? now : current.getCompleted());
+            listener.getLogger()
+                    .println(String.format(
+                            "Test case index of %s refreshed %s: %s test cases fetched, %s indexed.",
+                            project, complete ? "completely" : "incrementally", fetched[0], next.size()));
+            return file;
+        }
+    }
+}
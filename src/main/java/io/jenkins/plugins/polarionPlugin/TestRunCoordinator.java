@@ -0,0 +1,99 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Creates the test run shared by all uploads of one build on the controller: matrix cells and
+ * parallel stages ask for it concurrently, the first request creates it and the others wait for
+ * that creation instead of starting their own. The id is recorded on the root build in a
+ * {@link SharedTestRunAction}, in-flight creations are tracked here only until they complete.
+ */
+final class TestRunCoordinator {
+
+    private static final ConcurrentMap<String, CompletableFuture<String>> CREATING = new ConcurrentHashMap<>();
+
+    private TestRunCoordinator() {}
+
+    /**
+     * @return the build whose uploads share a test run: the matrix build for a matrix cell, the run itself otherwise.
+     */
+    static Run<?, ?> rootOf(Run<?, ?> run) {
+        return run instanceof AbstractBuild ? ((AbstractBuild<?, ?>) run).getRootBuild() : run;
+    }
+
+    /**
+     * @return id of the test run shared by all uploads of the root build of {@code run} with the same
+     *     server, project and prefix, created with {@code connector} if there is none yet.
+     */
+    static String testRunFor(
+            Run<?, ?> run,
+            PolarionConnector connector,
+            String url,
+            String project,
+            String testRunIdPrefix,
+            String testRunTitle,
+            String testRunType,
+            String groupId)
+            throws IOException, InterruptedException {
+        Run<?, ?> root = rootOf(run);
+        String key = url + "|" + project + "|" + testRunIdPrefix;
+        String existing = sharedTestRuns(root).get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<String> creation = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = CREATING.putIfAbsent(root.getExternalizableId() + "|" + key, creation);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // another upload may have finished creating it since the first lookup
+            String testRunId = sharedTestRuns(root).get(key);
+            if (testRunId == null) {
+                testRunId = connector.createTestRun(
+                        project, PolarionConnector.newTestRunId(testRunIdPrefix), testRunTitle, testRunType, groupId);
+                sharedTestRuns(root).put(key, testRunId);
+                root.save();
+            }
+            creation.complete(testRunId);
+            return testRunId;
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            creation.completeExceptionally(e);
+            throw e;
+        } finally {
+            CREATING.remove(root.getExternalizableId() + "|" + key, creation);
+        }
+    }
+
+    private static SharedTestRunAction sharedTestRuns(Run<?, ?> root) {
+        synchronized (TestRunCoordinator.class) {
+            SharedTestRunAction action = root.getAction(SharedTestRunAction.class);
+            if (action == null) {
+                action = new SharedTestRunAction();
+                root.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    private static String await(CompletableFuture<String> creation) throws IOException, InterruptedException {
+        try {
+            return creation.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException("Could not create the shared test run: " + cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Could not create the shared test run", cause);
+        }
+    }
+}
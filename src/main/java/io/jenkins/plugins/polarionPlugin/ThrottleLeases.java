@@ -0,0 +1,113 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The permits one upload holds on a {@link RequestThrottle} of the controller, exported to the agent
+ * instead of the throttle itself. An agent that disconnects, or an upload cancelled between the grant of
+ * a permit and its arrival on the agent, would otherwise keep permits forever. Here every permit is a lease
+ * that expires, and all leases are given back when the upload ends on the controller.
+ */
+final class ThrottleLeases implements PolarionThrottle {
+
+    static final long LEASE_MILLIS =
+            Long.getLong(ThrottleLeases.class.getName() + ".leaseMillis", TimeUnit.MINUTES.toMillis(30));
+
+    private final PolarionThrottle throttle;
+    private final long leaseNanos;
+    // grant times of the leases held, oldest first
+    private final Deque<Long> leases = new ArrayDeque<>();
+    // leases that expired while their request was still running; its release must not give back another
+    private int expiredUnreturned;
+    private boolean closed;
+
+    ThrottleLeases(PolarionThrottle throttle) {
+        this(throttle, LEASE_MILLIS);
+    }
+
+    ThrottleLeases(PolarionThrottle throttle, long leaseMillis) {
+        this.throttle = throttle;
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        expire();
+        throttle.acquire();
+        if (!lease()) {
+            throw new InterruptedException("The upload has ended");
+        }
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        expire();
+        return throttle.tryAcquire() && lease();
+    }
+
+    /**
+     * Gives back the oldest lease; nothing if a lease has expired or the upload has ended meanwhile.
+     */
+    @Override
+    public void release() {
+        boolean held;
+        synchronized (this) {
+            if (expiredUnreturned > 0) {
+                expiredUnreturned--;
+                return;
+            }
+            held = leases.pollFirst() != null;
+        }
+        if (held) {
+            throttle.release();
+        }
+    }
+
+    /**
+     * Gives back all leases; permits requested later are refused.
+     */
+    void close() {
+        int held;
+        synchronized (this) {
+            closed = true;
+            held = leases.size();
+            leases.clear();
+            expiredUnreturned = 0;
+        }
+        for (int i = 0; i < held; i++) {
+            throttle.release();
+        }
+    }
+
+    synchronized int getLeases() {
+        return leases.size();
+    }
+
+    private boolean lease() {
+        synchronized (this) {
+            if (!closed) {
+                leases.addLast(System.nanoTime());
+                return true;
+            }
+        }
+        throttle.release();
+        return false;
+    }
+
+    private void expire() {
+        long oldest = System.nanoTime() - leaseNanos;
+        int expired = 0;
+        synchronized (this) {
+            while (!leases.isEmpty() && leases.peekFirst() - oldest < 0) {
+                leases.pollFirst();
+                expired++;
+            }
+            expiredUnreturned += expired;
+        }
+        for (int i = 0; i < expired; i++) {
+            throttle.release();
+        }
+    }
+}
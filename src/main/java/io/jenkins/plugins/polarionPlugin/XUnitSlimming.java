@@ -0,0 +1,283 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Streaming filters dropping the parts of xUnit results that Polarion does not need, applied on the
+ * agent while a payload is sent: test output (including attachments referenced from it), overlong
+ * failure messages and stack traces, and properties of passed test cases. Everything is streamed, except
+ * that dropping properties of passed test cases holds one test case in memory at a time, without its output.
+ * Also counts the bytes before and after filtering, so every upload needs an instance of its own.
+ */
+final class XUnitSlimming implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String TRUNCATED = " [truncated]";
+
+    private final boolean dropOutput;
+    private final int maxMessageLength;
+    private final boolean dropPassedProperties;
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /**
+     * @param maxMessageLength characters kept of failure and error messages and their stack traces, 0 to keep all.
+     */
+    XUnitSlimming(boolean dropOutput, int maxMessageLength, boolean dropPassedProperties) {
+        this.dropOutput = dropOutput;
+        this.maxMessageLength = maxMessageLength;
+        this.dropPassedProperties = dropPassedProperties;
+    }
+
+    /**
+     * @return an instance that applies no filter and only counts.
+     */
+    static XUnitSlimming none() {
+        return new XUnitSlimming(false, 0, false);
+    }
+
+    boolean isEnabled() {
+        return dropOutput || maxMessageLength > 0 || dropPassedProperties;
+    }
+
+    long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    /**
+     * Writes {@code file} to {@code out} with the filters applied.
+     */
+    void copy(File file, OutputStream out) throws IOException, XMLStreamException {
+        bytesIn.addAndGet(file.length());
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            XMLEventReader reader = XUnitStreams.inputFactory().createXMLEventReader(in);
+            XMLEventWriter writer = wrap(XUnitStreams.outputFactory().createXMLEventWriter(count(out), "UTF-8"));
+            try {
+                writer.add(reader);
+                writer.flush();
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Counts what is written to {@code out} as filtered output.
+     */
+    OutputStream count(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesOut.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesOut.addAndGet(len);
+            }
+        };
+    }
+
+    void countInput(long bytes) {
+        bytesIn.addAndGet(bytes);
+    }
+
+    XMLEventWriter wrap(XMLEventWriter writer) {
+        return isEnabled() ? new SlimmingWriter(writer) : writer;
+    }
+
+    private final class SlimmingWriter implements XMLEventWriter {
+        private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        private final XMLEventWriter delegate;
+        /** Depth inside a dropped element, 0 outside of one. */
+        private int dropping;
+        /** Events of the current test case while properties of passed ones are dropped, else {@code null}. */
+        private List<XMLEvent> testCase;
+
+        private boolean inTestCase;
+        private boolean passed;
+        private boolean inMessage;
+        private int messageLength;
+
+        SlimmingWriter(XMLEventWriter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void add(XMLEvent event) throws XMLStreamException {
+            if (dropping > 0) {
+                if (event.isStartElement()) {
+                    dropping++;
+                } else if (event.isEndElement()) {
+                    dropping--;
+                }
+                return;
+            }
+            if (event.isStartElement()) {
+                String name = event.asStartElement().getName().getLocalPart();
+                if (dropOutput && ("system-out".equals(name) || "system-err".equals(name))) {
+                    dropping = 1;
+                    return;
+                }
+                if (XUnitStreams.TESTCASE.equals(name)) {
+                    inTestCase = true;
+                    passed = true;
+                    testCase = dropPassedProperties ? new ArrayList<>() : null;
+                } else if (inTestCase
+                        && ("failure".equals(name) || "error".equals(name) || "skipped".equals(name))) {
+                    passed = false;
+                    inMessage = maxMessageLength > 0;
+                    messageLength = 0;
+                    event = truncateMessage(event.asStartElement());
+                }
+            } else if (inMessage && event.isCharacters()) {
+                String text = event.asCharacters().getData();
+                int remaining = maxMessageLength - messageLength;
+                messageLength += text.length();
+                if (remaining <= 0) {
+                    return;
+                }
+                if (text.length() > remaining) {
+                    event = eventFactory.createCharacters(text.substring(0, remaining) + TRUNCATED);
+                }
+            } else if (event.isEndElement()) {
+                String name = event.asEndElement().getName().getLocalPart();
+                if (XUnitStreams.TESTCASE.equals(name)) {
+                    inTestCase = false;
+                }
+                if (XUnitStreams.TESTCASE.equals(name) && testCase != null) {
+                    testCase.add(event);
+                    List<XMLEvent> events = testCase;
+                    testCase = null;
+                    writeTestCase(events);
+                    return;
+                }
+                if ("failure".equals(name) || "error".equals(name) || "skipped".equals(name)) {
+                    inMessage = false;
+                }
+            }
+            if (testCase != null) {
+                testCase.add(event);
+            } else {
+                delegate.add(event);
+            }
+        }
+
+        private XMLEvent truncateMessage(StartElement element) {
+            Attribute message = element.getAttributeByName(new QName("message"));
+            if (maxMessageLength <= 0 || message == null || message.getValue().length() <= maxMessageLength) {
+                return element;
+            }
+            List<Attribute> attributes = new ArrayList<>();
+            for (Iterator<?> i = element.getAttributes(); i.hasNext(); ) {
+                Attribute attribute = (Attribute) i.next();
+                attributes.add(
+                        attribute.getName().equals(message.getName())
+                                ? eventFactory.createAttribute(
+                                        attribute.getName(),
+                                        attribute.getValue().substring(0, maxMessageLength) + TRUNCATED)
+                                : attribute);
+            }
+            return eventFactory.createStartElement(
+                    element.getName(), attributes.iterator(), element.getNamespaces());
+        }
+
+        /**
+         * Writes a buffered test case, without its properties if it passed.
+         */
+        private void writeTestCase(List<XMLEvent> events) throws XMLStreamException {
+            int depth = 0;
+            int skipFrom = -1;
+            for (XMLEvent event : events) {
+                if (event.isStartElement()) {
+                    depth++;
+                    if (skipFrom < 0
+                            && passed
+                            && depth == 2
+                            && "properties".equals(event.asStartElement().getName().getLocalPart())) {
+                        skipFrom = depth;
+                    }
+                }
+                if (skipFrom < 0) {
+                    delegate.add(event);
+                }
+                if (event.isEndElement()) {
+                    if (depth == skipFrom) {
+                        skipFrom = -1;
+                    }
+                    depth--;
+                }
+            }
+        }
+
+        @Override
+        public void add(XMLEventReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                add(reader.nextEvent());
+            }
+        }
+
+        @Override
+        public void flush() throws XMLStreamException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws XMLStreamException {
+            delegate.close();
+        }
+
+        @Override
+        public String getPrefix(String uri) throws XMLStreamException {
+            return delegate.getPrefix(uri);
+        }
+
+        @Override
+        public void setPrefix(String prefix, String uri) throws XMLStreamException {
+            delegate.setPrefix(prefix, uri);
+        }
+
+        @Override
+        public void setDefaultNamespace(String uri) throws XMLStreamException {
+            delegate.setDefaultNamespace(uri);
+        }
+
+        @Override
+        public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+            delegate.setNamespaceContext(context);
+        }
+
+        @Override
+        public NamespaceContext getNamespaceContext() {
+            return delegate.getNamespaceContext();
+        }
+    }
+}
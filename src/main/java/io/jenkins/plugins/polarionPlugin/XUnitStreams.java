@@ -0,0 +1,836 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Streaming (StAX) helpers for xUnit result files. Nothing here builds a DOM, so memory use
+ * does not depend on the size of the processed files.
+ */
+final class XUnitStreams {
+
+    static final String TESTSUITES = "testsuites";
+    static final String TESTCASE = "testcase";
+    static final String TEST_CASE_ID_PROPERTY = "polarion-testcase-id";
+    // suite attributes that count test cases, left out of the chunks of a split file
+    private static final Set<String> COUNT_ATTRIBUTES = Set.of("tests", "failures", "errors", "skipped", "disabled");
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    // XML declaration and <testsuites> root that merge() adds around the files
+    private static final long MERGE_OVERHEAD = 128;
+
+    private XUnitStreams() {}
+
+    static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    static XMLOutputFactory outputFactory() {
+        return XMLOutputFactory.newInstance();
+    }
+
+    /**
+     * Writes all given result files as a single {@code <testsuites>} document. The {@code <testsuites>}
+     * root of each input file is dropped, so its {@code <testsuite>} children end up side by side.
+     */
+    static void merge(List<File> files, OutputStream out) throws IOException, XMLStreamException {
+        merge(files, out, XUnitSlimming.none());
+    }
+
+    /**
+     * Like {@link #merge(List, OutputStream)}, with the filters of {@code slimming} applied.
+     */
+    static void merge(List<File> files, OutputStream out, XUnitSlimming slimming)
+            throws IOException, XMLStreamException {
+        XMLInputFactory inputFactory = inputFactory();
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        XMLEventWriter writer = slimming.wrap(outputFactory().createXMLEventWriter(slimming.count(out), "UTF-8"));
+        writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+        writer.add(eventFactory.createStartElement("", "", TESTSUITES));
+        for (File file : files) {
+            slimming.countInput(file.length());
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                XMLEventReader reader = inputFactory.createXMLEventReader(in);
+                try {
+                    copyBody(reader, writer);
+                } finally {
+                    reader.close();
+                }
+            }
+        }
+        writer.add(eventFactory.createEndElement("", "", TESTSUITES));
+        writer.add(eventFactory.createEndDocument());
+        writer.flush();
+        writer.close();
+    }
+
+    /**
+     * Groups files, in order, for {@link #merge} so that each merged document stays within {@code maxBytes}:
+     * a group is closed before the sizes of its files and the enclosing root would exceed the limit.
+     * A file too large for any group gets a group of its own.
+     */
+    static List<List<File>> batches(List<File> files, long maxBytes) {
+        long budget = Math.max(0, maxBytes - MERGE_OVERHEAD);
+        List<List<File>> batches = new ArrayList<>();
+        List<File> batch = new ArrayList<>();
+        long size = 0;
+        for (File file : files) {
+            if (!batch.isEmpty() && size + file.length() > budget) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                size = 0;
+            }
+            batch.add(file);
+            size += file.length();
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Copies everything below the document (and below a {@code <testsuites>} root, if present).
+     */
+    private static void copyBody(XMLEventReader reader, XMLEventWriter writer) throws XMLStreamException {
+        int depth = 0;
+        boolean skipRoot = false;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            switch (event.getEventType()) {
+                case XMLEvent.START_DOCUMENT:
+                case XMLEvent.END_DOCUMENT:
+                case XMLEvent.DTD:
+                case XMLEvent.PROCESSING_INSTRUCTION:
+                    break;
+                case XMLEvent.START_ELEMENT:
+                    if (depth == 0 && TESTSUITES.equals(event.asStartElement().getName().getLocalPart())) {
+                        skipRoot = true;
+                    } else {
+                        writer.add(event);
+                    }
+                    depth++;
+                    break;
+                case XMLEvent.END_ELEMENT:
+                    depth--;
+                    if (!(depth == 0 && skipRoot)) {
+                        writer.add(event);
+                    }
+                    break;
+                default:
+                    if (depth > 0) {
+                        writer.add(event);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Splits a result file into documents of at most {@code maxBytes} each, written to {@code dir}.
+     * Cuts are only made between {@code <testcase>} elements: every chunk reopens the enclosing
+     * {@code <testsuites>}/{@code <testsuite>} elements with their original attributes, so each chunk
+     * is a well-formed result file of its own. The test counts of these elements are left out, as they
+     * would not match the test cases of a chunk. A single test case larger than the limit gets a chunk
+     * to itself.
+     *
+     * @return the chunk files in document order.
+     */
+    static List<File> split(File file, long maxBytes, File dir) throws IOException, XMLStreamException {
+        String baseName = file.getName().replaceFirst("\\.xml$", "");
+        ChunkWriter chunks = new ChunkWriter(dir, baseName);
+        Deque<StartElement> open = new ArrayDeque<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            XMLEventReader reader = inputFactory().createXMLEventReader(in);
+            try {
+                chunks.next(open);
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    switch (event.getEventType()) {
+                        case XMLEvent.START_DOCUMENT:
+                        case XMLEvent.END_DOCUMENT:
+                        case XMLEvent.DTD:
+                        case XMLEvent.PROCESSING_INSTRUCTION:
+                            break;
+                        case XMLEvent.START_ELEMENT:
+                            StartElement start = event.asStartElement();
+                            if (TESTCASE.equals(start.getName().getLocalPart())) {
+                                List<XMLEvent> testCase = readElement(start, reader);
+                                long size = encodedSize(testCase);
+                                if (chunks.testCases > 0 && chunks.size() + size + closingSize(open) > maxBytes) {
+                                    chunks.next(open);
+                                }
+                                chunks.write(testCase);
+                                chunks.testCases++;
+                            } else {
+                                StartElement element = withoutCounts(start);
+                                chunks.writer.add(element);
+                                open.push(element);
+                            }
+                            break;
+                        case XMLEvent.END_ELEMENT:
+                            open.pop();
+                            chunks.writer.add(event);
+                            break;
+                        default:
+                            if (!open.isEmpty()) {
+                                chunks.writer.add(event);
+                            }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            chunks.finish(open);
+        } finally {
+            chunks.closeQuietly();
+        }
+        return chunks.files;
+    }
+
+    /**
+     * Copies only the test cases of {@code file} whose outcome differs from {@code previous} (or that
+     * are new) to {@code out}, inside their enclosing suites; the identity and outcome of every test
+     * case is added to {@code next}. Suites without changed test cases and suite-level content other
+     * than test cases are left out.
+     *
+     * @return number of test cases written.
+     */
+    static int filterChanged(File file, File out, DeltaIndex previous, DeltaIndex.Builder next, DeltaSummary summary)
+            throws IOException, XMLStreamException {
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        List<StartElement> open = new ArrayList<>();
+        int written = 0;
+        int testCases = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()));
+                OutputStream target = new BufferedOutputStream(Files.newOutputStream(out.toPath()))) {
+            XMLEventReader reader = inputFactory().createXMLEventReader(in);
+            XMLEventWriter writer = outputFactory().createXMLEventWriter(target, "UTF-8");
+            try {
+                writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        StartElement start = event.asStartElement();
+                        if (!TESTCASE.equals(start.getName().getLocalPart())) {
+                            open.add(start);
+                            if (open.size() == 1) {
+                                writer.add(start);
+                                written = 1;
+                            }
+                            continue;
+                        }
+                        List<XMLEvent> testCase = readElement(start, reader);
+                        long key = DeltaIndex.hash(
+                                suiteName(open), attribute(start, "classname"), attribute(start, "name"));
+                        long outcome = outcome(testCase);
+                        next.put(key, outcome);
+                        if (!previous.isChanged(key, outcome)) {
+                            summary.unchanged++;
+                            continue;
+                        }
+                        if (previous.contains(key)) {
+                            summary.changed++;
+                        } else {
+                            summary.added++;
+                        }
+                        for (; written < open.size(); written++) {
+                            writer.add(open.get(written));
+                        }
+                        for (XMLEvent testCaseEvent : testCase) {
+                            writer.add(testCaseEvent);
+                        }
+                        testCases++;
+                    } else if (event.isEndElement()) {
+                        if (written == open.size()) {
+                            writer.add(event);
+                            written--;
+                        }
+                        open.remove(open.size() - 1);
+                    }
+                }
+                writer.add(eventFactory.createEndDocument());
+                writer.flush();
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        }
+        return testCases;
+    }
+
+    private static StartElement withoutCounts(StartElement element) {
+        String name = element.getName().getLocalPart();
+        if (!TESTSUITES.equals(name) && !"testsuite".equals(name)) {
+            return element;
+        }
+        List<Attribute> attributes = new ArrayList<>();
+        boolean counted = false;
+        for (Iterator<?> i = element.getAttributes(); i.hasNext(); ) {
+            Attribute attribute = (Attribute) i.next();
+            if (COUNT_ATTRIBUTES.contains(attribute.getName().getLocalPart())) {
+                counted = true;
+            } else {
+                attributes.add(attribute);
+            }
+        }
+        return counted
+                ? XMLEventFactory.newInstance()
+                        .createStartElement(element.getName(), attributes.iterator(), element.getNamespaces())
+                : element;
+    }
+
+    private static String suiteName(List<StartElement> open) {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            if ("testsuite".equals(open.get(i).getName().getLocalPart())) {
+                return attribute(open.get(i), "name");
+            }
+        }
+        return null;
+    }
+
+    private static String attribute(StartElement element, String name) {
+        Attribute attribute = element.getAttributeByName(new QName(name));
+        return attribute != null ? attribute.getValue() : null;
+    }
+
+    /**
+     * Hashes the verdict of a test case: passed, or the first failure, error or skipped element
+     * with its type and message. Timings and output are ignored, they differ between every run.
+     */
+    private static long outcome(List<XMLEvent> testCase) {
+        int depth = 0;
+        for (XMLEvent event : testCase) {
+            if (event.isStartElement()) {
+                depth++;
+                StartElement element = event.asStartElement();
+                String status = element.getName().getLocalPart();
+                if (depth == 2 && ("failure".equals(status) || "error".equals(status) || "skipped".equals(status))) {
+                    return DeltaIndex.hash(status, attribute(element, "type"), attribute(element, "message"));
+                }
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+        return DeltaIndex.hash("passed");
+    }
+
+    /**
+     * Test case counts of a delta upload.
+     */
+    static final class DeltaSummary implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int added;
+        int changed;
+        int unchanged;
+        int removed;
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s new, %s changed, %s unchanged (not sent), %s no longer reported",
+                    added, changed, unchanged, removed);
+        }
+    }
+
+    /**
+     * Collects the work items linked from test cases through {@code <property name="..." value="..."/>}
+     * elements, with a comma or whitespace separated list of ids as value, into {@code verdicts}: an
+     * item passes if all its linked test cases passed and fails if any failed or had an error.
+     * Skipped test cases do not count.
+     *
+     * @return number of test cases with links.
+     */
+    static int collectLinks(File file, String property, Map<String, Boolean> verdicts)
+            throws IOException, XMLStreamException {
+        int linked = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            XMLEventReader reader = inputFactory().createXMLEventReader(in);
+            try {
+                Set<String> links = null;
+                boolean failed = false;
+                boolean skipped = false;
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        StartElement start = event.asStartElement();
+                        String name = start.getName().getLocalPart();
+                        if (TESTCASE.equals(name)) {
+                            links = new LinkedHashSet<>();
+                            failed = false;
+                            skipped = false;
+                        } else if (links == null) {
+                            continue;
+                        } else if ("failure".equals(name) || "error".equals(name)) {
+                            failed = true;
+                        } else if ("skipped".equals(name)) {
+                            skipped = true;
+                        } else if ("property".equals(name) && property.equals(attribute(start, "name"))) {
+                            String value = attribute(start, "value");
+                            for (String id : StringUtils.defaultString(value).split("[,\\s]+")) {
+                                if (!id.isEmpty()) {
+                                    links.add(id);
+                                }
+                            }
+                        }
+                    } else if (event.isEndElement()
+                            && links != null
+                            && TESTCASE.equals(event.asEndElement().getName().getLocalPart())) {
+                        if (!links.isEmpty() && (failed || !skipped)) {
+                            linked++;
+                            boolean passed = !failed;
+                            for (String id : links) {
+                                verdicts.merge(id, passed, Boolean::logicalAnd);
+                            }
+                        }
+                        links = null;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return linked;
+    }
+
+    /**
+     * Copies {@code file} to {@code out}, adding a {@value #TEST_CASE_ID_PROPERTY} property to every
+     * test case found in {@code index} by {@code classname.name}, or by its name if it has no classname,
+     * so that the import does not have to match it. A bare name is never tried for a test case with a
+     * classname, as several test cases of different classes may share it. Test cases that already have
+     * the property are left as they are.
+     *
+     * @return number of test cases that were given an id.
+     */
+    static int annotateTestCaseIds(File file, File out, TestCaseIndex index) throws IOException, XMLStreamException {
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        int annotated = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()));
+                OutputStream target = new BufferedOutputStream(Files.newOutputStream(out.toPath()))) {
+            XMLEventReader reader = inputFactory().createXMLEventReader(in);
+            XMLEventWriter writer = outputFactory().createXMLEventWriter(target, "UTF-8");
+            try {
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (!event.isStartElement() || !TESTCASE.equals(event.asStartElement().getName().getLocalPart())) {
+                        writer.add(event);
+                        continue;
+                    }
+                    StartElement start = event.asStartElement();
+                    String classname = attribute(start, "classname");
+                    String name = attribute(start, "name");
+                    int slot = index.find(classname, name);
+                    if (slot < 0) {
+                        writer.add(start);
+                        continue;
+                    }
+                    List<XMLEvent> testCase = readElement(start, reader);
+                    int properties = propertiesEnd(testCase);
+                    if (properties == -2) {
+                        for (XMLEvent testCaseEvent : testCase) {
+                            writer.add(testCaseEvent);
+                        }
+                        continue;
+                    }
+                    List<XMLEvent> property = List.of(
+                            eventFactory.createStartElement(
+                                    "",
+                                    "",
+                                    "property",
+                                    List.of(
+                                                    eventFactory.createAttribute("name", TEST_CASE_ID_PROPERTY),
+                                                    eventFactory.createAttribute("value", index.id(slot)))
+                                            .iterator(),
+                                    null),
+                            eventFactory.createEndElement("", "", "property"));
+                    writer.add(start);
+                    if (properties < 0) {
+                        writer.add(eventFactory.createStartElement("", "", "properties"));
+                        for (XMLEvent propertyEvent : property) {
+                            writer.add(propertyEvent);
+                        }
+                        writer.add(eventFactory.createEndElement("", "", "properties"));
+                    }
+                    for (int i = 1; i < testCase.size(); i++) {
+                        if (i == properties) {
+                            for (XMLEvent propertyEvent : property) {
+                                writer.add(propertyEvent);
+                            }
+                        }
+                        writer.add(testCase.get(i));
+                    }
+                    annotated++;
+                }
+                writer.flush();
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        }
+        return annotated;
+    }
+
+    /**
+     * @return position of the end of the test case's own {@code properties} element, -1 if it has
+     *     none, -2 if it already has a {@value #TEST_CASE_ID_PROPERTY} property.
+     */
+    private static int propertiesEnd(List<XMLEvent> testCase) {
+        int depth = 0;
+        int end = -1;
+        for (int i = 0; i < testCase.size(); i++) {
+            XMLEvent event = testCase.get(i);
+            if (event.isStartElement()) {
+                depth++;
+                StartElement element = event.asStartElement();
+                if (depth == 3
+                        && "property".equals(element.getName().getLocalPart())
+                        && TEST_CASE_ID_PROPERTY.equals(attribute(element, "name"))) {
+                    return -2;
+                }
+            } else if (event.isEndElement()) {
+                if (depth == 2 && end < 0 && "properties".equals(event.asEndElement().getName().getLocalPart())) {
+                    end = i;
+                }
+                depth--;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reads the remaining events of the element started by {@code start}, including its end.
+     */
+    private static List<XMLEvent> readElement(StartElement start, XMLEventReader reader) throws XMLStreamException {
+        List<XMLEvent> events = new ArrayList<>();
+        events.add(start);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static long encodedSize(List<XMLEvent> events) throws XMLStreamException {
+        StringWriter encoded = new StringWriter();
+        for (XMLEvent event : events) {
+            event.writeAsEncodedUnicode(encoded);
+        }
+        return encoded.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long closingSize(Deque<StartElement> open) {
+        long size = 0;
+        for (StartElement element : open) {
+            size += element.getName().getLocalPart().length() + 3;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the chunks of {@link #split}, one file at a time.
+     */
+    private static final class ChunkWriter {
+        private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        private final File dir;
+        private final String baseName;
+        private final List<File> files = new ArrayList<>();
+        private CountingOutputStream out;
+        private XMLEventWriter writer;
+        private int testCases;
+
+        ChunkWriter(File dir, String baseName) {
+            this.dir = dir;
+            this.baseName = baseName;
+        }
+
+        /**
+         * Closes the current chunk, if any, and starts the next one inside the currently open elements.
+         */
+        void next(Deque<StartElement> open) throws IOException, XMLStreamException {
+            finish(open);
+            File file = new File(dir, baseName + ".part" + (files.size() + 1) + ".xml");
+            files.add(file);
+            out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+            writer = outputFactory().createXMLEventWriter(out, "UTF-8");
+            writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+            Iterator<StartElement> outermostFirst = open.descendingIterator();
+            while (outermostFirst.hasNext()) {
+                writer.add(outermostFirst.next());
+            }
+            testCases = 0;
+        }
+
+        void write(List<XMLEvent> events) throws XMLStreamException {
+            for (XMLEvent event : events) {
+                writer.add(event);
+            }
+        }
+
+        long size() throws XMLStreamException {
+            writer.flush();
+            return out.count;
+        }
+
+        void finish(Deque<StartElement> open) throws IOException, XMLStreamException {
+            if (writer == null) {
+                return;
+            }
+            for (StartElement element : open) {
+                writer.add(eventFactory.createEndElement(element.getName(), null));
+            }
+            writer.add(eventFactory.createEndDocument());
+            writer.close();
+            out.close();
+            writer = null;
+        }
+
+        void closeQuietly() {
+            if (writer != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // the chunk is discarded anyway
+                }
+                writer = null;
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Exposes the output of {@code producer} as an input stream. The producer runs on an
+     * {@link PolarionExecutors#ioThreads(String) I/O thread} and writes into a fixed-size buffer, so the
+     * payload is never held in memory or on disk as a whole. A producer failure surfaces as an
+     * {@link IOException} on the reading side, after the bytes written before it, instead of a silently
+     * truncated stream. Closing the stream early makes the next write of the producer fail, which ends it.
+     */
+    static InputStream pipe(String name, Producer producer) {
+        Pipe pipe = new Pipe(name, PIPE_BUFFER_SIZE);
+        PolarionExecutors.ioThreads(name)
+                .newThread(() -> {
+                    try {
+                        producer.writeTo(pipe.output());
+                        pipe.finish(null);
+                    } catch (Exception e) {
+                        pipe.finish(e);
+                    }
+                })
+                .start();
+        return pipe.input();
+    }
+
+    interface Producer {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Bounded byte buffer between one writing and one reading thread. Unlike {@link java.io.PipedInputStream}
+     * it does not track which threads use it, so it works with pooled and virtual threads.
+     */
+    private static final class Pipe {
+        private final String name;
+        private final byte[] buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition readable = lock.newCondition();
+        private final Condition writable = lock.newCondition();
+        private int start;
+        private int count;
+        private boolean writerClosed;
+        private boolean readerClosed;
+        private Exception failure;
+
+        Pipe(String name, int size) {
+            this.name = name;
+            this.buffer = new byte[size];
+        }
+
+        /**
+         * Ends the output, with the exception the producer failed with, null if it succeeded.
+         */
+        void finish(Exception e) {
+            lock.lock();
+            try {
+                failure = e;
+                writerClosed = true;
+                readable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                while (len > 0) {
+                    while (count == buffer.length && !readerClosed) {
+                        writable.await();
+                    }
+                    if (readerClosed) {
+                        throw new IOException("The reader of " + name + " has closed the stream");
+                    }
+                    int end = (start + count) % buffer.length;
+                    int n = Math.min(len, Math.min(buffer.length - count, buffer.length - end));
+                    System.arraycopy(b, off, buffer, end, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                    readable.signal();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(name + " was interrupted");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (count == 0 && !writerClosed) {
+                    readable.await();
+                }
+                if (count == 0) {
+                    if (failure != null) {
+                        throw new IOException(name + " failed: " + failure.getMessage(), failure);
+                    }
+                    return -1;
+                }
+                int n = Math.min(len, Math.min(count, buffer.length - start));
+                System.arraycopy(buffer, start, b, off, n);
+                start = (start + n) % buffer.length;
+                count -= n;
+                writable.signal();
+                return n;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + name);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int available() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void closeReader() {
+            lock.lock();
+            try {
+                readerClosed = true;
+                count = 0;
+                writable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        OutputStream output() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    Pipe.this.write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    Pipe.this.write(b, off, len);
+                }
+
+                // the output ends when the producer returns, so that a failure after closing is still seen
+                @Override
+                public void close() {}
+            };
+        }
+
+        InputStream input() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return Pipe.this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return Pipe.this.read(b, off, len);
+                }
+
+                @Override
+                public int available() {
+                    return Pipe.this.available();
+                }
+
+                @Override
+                public void close() {
+                    closeReader();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Polarion REST endpoints used by {@link PolarionConnector}: projects,
+ * work items, test runs, result imports and job status. Responses are canned and request bodies are
+ * drained, so measurements reflect the client side. Latency, server errors, throttling and a payload
+ * limit can be simulated.
+ */
+class StubPolarionServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final int projectCount;
+    private final long delayMillis;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentSkipListMap<>();
+    private volatile double errorRate;
+    private volatile double throttleRate;
+    private volatile long maxPayloadBytes;
+
+    StubPolarionServer(int projectCount) throws IOException {
+        this(projectCount, 0);
+    }
+
+    /**
+     * @param delayMillis time every response is held back, to simulate a slow server.
+     */
+    StubPolarionServer(int projectCount, long delayMillis) throws IOException {
+        this.projectCount = projectCount;
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/polarion/rest/v1/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/polarion";
+    }
+
+    /**
+     * @param errorRate fraction of requests answered with {@code 500}.
+     */
+    void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param throttleRate fraction of requests answered with {@code 429} and {@code Retry-After: 1}.
+     */
+    void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    /**
+     * @param maxPayloadBytes size above which result imports are answered with {@code 413}, 0 for no limit.
+     */
+    void setMaxPayloadBytes(long maxPayloadBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    /**
+     * @return number of responses sent so far by status code.
+     */
+    Map<Integer, Long> getStatusCodes() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCodes.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long payload;
+        try (InputStream body = exchange.getRequestBody()) {
+            payload = body.transferTo(OutputStream.nullOutputStream());
+        }
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        double chance = ThreadLocalRandom.current().nextDouble();
+        if (chance < throttleRate) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "{\"errors\":[{\"status\":\"429\",\"detail\":\"Too many requests\"}]}");
+        } else if (chance < throttleRate + errorRate) {
+            respond(exchange, 500, "{\"errors\":[{\"status\":\"500\",\"detail\":\"Simulated failure\"}]}");
+        } else if (path.endsWith("/actions/importXUnitTestResults")) {
+            if (maxPayloadBytes > 0 && payload > maxPayloadBytes) {
+                respond(exchange, 413, "{\"errors\":[{\"status\":\"413\",\"detail\":\"Payload too large\"}]}");
+            } else {
+                respond(exchange, 202, "{\"data\":{\"type\":\"jobs\",\"id\":\"job-" + ids.incrementAndGet() + "\"}}");
+            }
+        } else if (path.contains("/jobs/")) {
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            respond(
+                    exchange,
+                    200,
+                    "{\"data\":{\"type\":\"jobs\",\"id\":\"" + id + "\",\"attributes\":{\"state\":\"FINISHED\","
+                            + "\"status\":{\"type\":\"OK\",\"message\":\"\"}}}}");
+        } else if (path.endsWith("/testruns") && "POST".equals(method)) {
+            respond(
+                    exchange,
+                    201,
+                    "{\"data\":[{\"type\":\"testruns\",\"id\":\"P/run-" + ids.incrementAndGet() + "\"}]}");
+        } else if (path.endsWith("/testrecords")) {
+            respond(exchange, 200, "{\"data\":[],\"meta\":{\"totalCount\":0}}");
+        } else if (path.contains("/workitems/") && "PATCH".equals(method)) {
+            respond(exchange, 204, null);
+        } else if (path.endsWith("/workitems")) {
+            respond(exchange, 200, "{\"data\":[],\"meta\":{\"totalCount\":0}}");
+        } else if (path.endsWith("/projects")) {
+            int size = queryParameter(exchange, "page[size]", projectCount);
+            int number = queryParameter(exchange, "page[number]", 1);
+            int from = Math.min(projectCount, (number - 1) * size);
+            respond(exchange, 200, projectsPage(from, Math.min(projectCount, from + size), projectCount));
+        } else {
+            respond(exchange, 200, "{\"data\":{\"type\":\"projects\",\"id\":\"P\"}}");
+        }
+    }
+
+    private static int queryParameter(HttpExchange exchange, String name, int defaultValue) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    return Integer.parseInt(parameter.substring(name.length() + 1));
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    static String projectsPage(int count) {
+        return projectsPage(0, count, count);
+    }
+
+    private static String projectsPage(int from, int to, int totalCount) {
+        StringBuilder json = new StringBuilder("{\"data\":[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            json.append("{\"type\":\"projects\",\"id\":\"PROJECT_")
+                    .append(i)
+                    .append("\",\"links\":{\"self\":\"https://polarion.example.com/polarion/rest/v1/projects/PROJECT_")
+                    .append(i)
+                    .append("\"}}");
+        }
+        return json.append("],\"meta\":{\"totalCount\":").append(totalCount).append("}}").toString();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        statusCodes.computeIfAbsent(status, code -> new LongAdder()).increment();
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
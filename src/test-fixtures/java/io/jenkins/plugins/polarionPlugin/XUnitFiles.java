@@ -0,0 +1,37 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates surefire-like result files of a given size for the benchmarks.
+ */
+final class XUnitFiles {
+
+    private XUnitFiles() {}
+
+    static Path write(Path dir, String name, long approximateBytes) throws IOException {
+        Path file = dir.resolve(name);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<testsuite name=\"com.example.GeneratedTest\" tests=\"0\" failures=\"0\">\n");
+            long written = 0;
+            for (int i = 0; written < approximateBytes; i++) {
+                String start =
+                        "  <testcase classname=\"com.example.GeneratedTest\" name=\"test" + i + "\" time=\"0.01\"";
+                String testCase = i % 10 == 0
+                        ? start + "><failure message=\"expected:&lt;1&gt; but was:&lt;2&gt;\">"
+                                + "java.lang.AssertionError at com.example.GeneratedTest.test" + i + "</failure>"
+                                + "<system-out>log line of test " + i + "</system-out></testcase>\n"
+                        : start + "/>\n";
+                out.write(testCase);
+                written += testCase.length();
+            }
+            out.write("</testsuite>\n");
+        }
+        return file;
+    }
+}
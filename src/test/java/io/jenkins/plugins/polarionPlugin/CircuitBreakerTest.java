@@ -0,0 +1,88 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    private final CircuitBreaker breaker = new CircuitBreaker("https://polarion", 2, OPEN_MILLIS);
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(HttpException.class, breaker::acquire);
+    }
+
+    @Test
+    public void successResetsTheFailureCount() throws Exception {
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire();
+    }
+
+    @Test
+    public void letsOneTrialThroughWhenHalfOpen() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(HttpException.class, breaker::acquire);
+    }
+
+    @Test
+    public void closesWhenTheTrialSucceeds() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        breaker.acquire();
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire();
+        breaker.acquire();
+    }
+
+    @Test
+    public void reopensWhenTheTrialFails() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        breaker.acquire();
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(HttpException.class, breaker::acquire);
+    }
+
+    @Test
+    public void releaseLetsTheNextTrialThrough() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        breaker.acquire();
+
+        breaker.release();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.acquire();
+    }
+
+    private void open() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
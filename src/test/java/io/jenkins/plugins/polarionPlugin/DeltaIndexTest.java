@@ -0,0 +1,82 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeltaIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void reportsUnknownAndChangedTestCases() {
+        DeltaIndex index = index();
+
+        assertFalse(index.isChanged(DeltaIndex.hash("Suite", "passes"), DeltaIndex.hash("passed")));
+        assertTrue(index.isChanged(DeltaIndex.hash("Suite", "passes"), DeltaIndex.hash("failed")));
+        assertTrue(index.isChanged(DeltaIndex.hash("Suite", "new"), DeltaIndex.hash("passed")));
+        assertTrue(index.contains(DeltaIndex.hash("Suite", "fails")));
+        assertFalse(index.contains(DeltaIndex.hash("Suite", "new")));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void savesAndLoads() throws Exception {
+        File file = new File(tmp.getRoot(), "delta.bin");
+
+        index().save(file);
+        DeltaIndex loaded = DeltaIndex.load(file);
+
+        assertEquals("RUN-1", loaded.getTestRunId());
+        assertEquals(2, loaded.size());
+        assertFalse(loaded.isChanged(DeltaIndex.hash("Suite", "fails"), DeltaIndex.hash("failed")));
+        assertFalse(new File(tmp.getRoot(), "delta.bin.tmp").exists());
+    }
+
+    @Test
+    public void loadsNothingFromMissingOrCorruptFiles() throws Exception {
+        File file = new File(tmp.getRoot(), "delta.bin");
+        assertNull(DeltaIndex.load(file));
+
+        index().save(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(DeltaIndex.load(file));
+
+        Files.write(file.toPath(), new byte[] {0, 0, 0, 9});
+        assertNull(DeltaIndex.load(file));
+    }
+
+    @Test
+    public void hashSeparatesParts() {
+        assertNotEquals(DeltaIndex.hash("ab", "c"), DeltaIndex.hash("a", "bc"));
+        assertNotEquals(DeltaIndex.hash("a", null), DeltaIndex.hash("a"));
+        assertEquals(DeltaIndex.hash("a", "b"), DeltaIndex.hash("a", "b"));
+    }
+
+    @Test
+    public void emptyIndexReportsEverythingChanged() {
+        DeltaIndex index = DeltaIndex.empty("RUN-1");
+
+        assertEquals(0, index.size());
+        assertTrue(index.isChanged(DeltaIndex.hash("Suite", "passes"), DeltaIndex.hash("passed")));
+    }
+
+    private static DeltaIndex index() {
+        DeltaIndex.Builder builder = new DeltaIndex.Builder("RUN-1");
+        builder.put(DeltaIndex.hash("Suite", "passes"), DeltaIndex.hash("passed"));
+        builder.put(DeltaIndex.hash("Suite", "fails"), DeltaIndex.hash("failed"));
+        builder.put(DeltaIndex.hash("Suite", "passes"), DeltaIndex.hash("passed"));
+        return builder.build();
+    }
+}
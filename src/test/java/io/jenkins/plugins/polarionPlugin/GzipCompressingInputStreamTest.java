@@ -0,0 +1,62 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class GzipCompressingInputStreamTest {
+
+    @Test
+    public void compressesEmptyInput() throws Exception {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void compressesSmallInput() throws Exception {
+        assertRoundTrip("<testsuite name=\"s\"/>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void compressesLargeInput() throws Exception {
+        byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        Random random = new Random(42);
+        for (int i = 0; i < bytes.length; i++) {
+            // compressible like test results, but not trivially so
+            bytes[i] = (byte) (i % 64 == 0 ? random.nextInt() : 'a' + i % 26);
+        }
+        assertRoundTrip(bytes);
+    }
+
+    @Test
+    public void compressesInputReadByteByByte() throws Exception {
+        byte[] bytes = "<testcase name=\"a\"/>".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            for (int b = in.read(); b != -1; b = in.read()) {
+                compressed.write(b);
+            }
+            assertArrayEquals(bytes, gunzip(compressed.toByteArray()));
+        }
+    }
+
+    private static void assertRoundTrip(byte[] bytes) throws IOException {
+        byte[] compressed;
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(bytes))) {
+            compressed = in.readAllBytes();
+        }
+        assertArrayEquals(bytes, gunzip(compressed));
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
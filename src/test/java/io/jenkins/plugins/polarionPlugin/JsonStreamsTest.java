@@ -0,0 +1,87 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.Test;
+
+public class JsonStreamsTest {
+
+    private static final String PAGE = "{\"links\": {\"self\": \"https://polarion/projects?page=1\"},\n"
+            + "  \"data\": [\n"
+            + "    {\"type\": \"projects\", \"id\": \"alpha\",\n"
+            + "     \"attributes\": {\"name\": \"A\", \"tags\": [1, 2, {}]}},\n"
+            + "    {\"attributes\": {\"id\": \"not this\"}, \"id\": \"be\\\"ta\", \"links\": {}},\n"
+            + "    {\"id\": \"g\\u0061mma\", \"active\": true, \"count\": -1.5e3, \"owner\": null}\n"
+            + "  ],\n"
+            + "  \"meta\": {\"totalCount\": 321, \"other\": [\"x\"]}\n"
+            + "}";
+
+    @Test
+    public void readsIdsAndTotalCount() throws Exception {
+        JsonStreams.Page page = JsonStreams.readIds(new StringReader(PAGE));
+
+        assertEquals(List.of("alpha", "be\"ta", "gamma"), page.getIds());
+        assertEquals(321, page.getTotalCount());
+    }
+
+    @Test
+    public void readsInputArrivingOneCharacterAtATime() throws Exception {
+        JsonStreams.Page page = JsonStreams.readIds(new OneCharReader(PAGE));
+
+        assertEquals(List.of("alpha", "be\"ta", "gamma"), page.getIds());
+        assertEquals(321, page.getTotalCount());
+    }
+
+    @Test
+    public void readsAnEmptyPageWithoutMeta() throws Exception {
+        JsonStreams.Page page = JsonStreams.readIds(new StringReader("{\"data\": []}"));
+
+        assertEquals(List.of(), page.getIds());
+        assertEquals(-1, page.getTotalCount());
+    }
+
+    @Test
+    public void ignoresDataThatIsNotAnArray() throws Exception {
+        JsonStreams.Page page =
+                JsonStreams.readIds(new StringReader("{\"data\": null, \"meta\": {\"totalCount\": 0}}"));
+
+        assertEquals(List.of(), page.getIds());
+        assertEquals(0, page.getTotalCount());
+    }
+
+    @Test
+    public void rejectsAnUnterminatedString() {
+        assertThrows(
+                JSONException.class, () -> JsonStreams.readIds(new StringReader("{\"data\": [{\"id\": \"alpha")));
+    }
+
+    @Test
+    public void rejectsAResponseThatIsNotAnObject() {
+        assertThrows(JSONException.class, () -> JsonStreams.readIds(new StringReader("<html>Bad gateway</html>")));
+    }
+
+    @Test
+    public void rejectsAnEmptyResponse() {
+        assertThrows(JSONException.class, () -> JsonStreams.readIds(new StringReader("")));
+    }
+
+    /**
+     * Hands out a single character per read, like a response body arriving in tiny chunks.
+     */
+    private static final class OneCharReader extends FilterReader {
+        OneCharReader(String text) {
+            super(new StringReader(text));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(1, length));
+        }
+    }
+}
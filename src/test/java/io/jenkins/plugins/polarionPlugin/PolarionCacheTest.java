@@ -0,0 +1,115 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class PolarionCacheTest {
+
+    @Test
+    public void loadsOnceAndCountsHitsAndMisses() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void reloadsExpiredEntries() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 10, Duration.ofMillis(20));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", () -> "a" + loads.incrementAndGet());
+        Thread.sleep(50);
+
+        assertEquals("a2", cache.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 2, Duration.ofMinutes(1));
+
+        cache.get("a", () -> "a");
+        cache.get("b", () -> "b");
+        cache.get("a", () -> "not loaded");
+        cache.get("c", () -> "c");
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("a", cache.get("a", () -> "reloaded"));
+        assertEquals("b reloaded", cache.get("b", () -> "b reloaded"));
+    }
+
+    @Test
+    public void doesNotCacheFailedLoads() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 10, Duration.ofMinutes(1));
+
+        assertThrows(IOException.class, () -> cache.get("a", () -> {
+            throw new IOException("unreachable");
+        }));
+
+        assertEquals(0, cache.getSize());
+        assertEquals("a", cache.get("a", () -> "a"));
+    }
+
+    @Test
+    public void invalidateAllDropsEntries() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 10, Duration.ofMinutes(1));
+        cache.get("a", () -> "a");
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.getSize());
+        assertEquals("a2", cache.get("a", () -> "a2"));
+    }
+
+    @Test
+    public void concurrentLookupsShareOneLoad() throws Exception {
+        PolarionCache<String, String> cache = new PolarionCache<>("test", 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> lookups = new ArrayList<>();
+            lookups.add(executor.submit(() -> cache.get("a", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "a";
+            })));
+            loading.await();
+            for (int i = 0; i < 3; i++) {
+                lookups.add(executor.submit(() -> cache.get("a", () -> "a" + loads.incrementAndGet())));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<String> lookup : lookups) {
+                assertEquals("a", lookup.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class RequestThrottleTest {
+
+    @Test
+    public void limitsConcurrentRequests() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(0, 2);
+
+        assertTrue(throttle.tryAcquire());
+        throttle.acquire();
+        assertFalse(throttle.tryAcquire());
+        assertEquals(2, throttle.getInFlight());
+
+        throttle.release();
+        assertEquals(1, throttle.getInFlight());
+        assertTrue(throttle.tryAcquire());
+    }
+
+    @Test
+    public void limitsTheRequestRate() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(throttle.tryAcquire());
+        }
+        assertFalse(throttle.tryAcquire());
+
+        long start = System.nanoTime();
+        throttle.acquire();
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("waited " + waited + "ms", waited >= 150);
+    }
+
+    @Test
+    public void unlimitedThrottleAdmitsEverything() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(0, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(throttle.tryAcquire());
+        }
+        throttle.acquire();
+        assertEquals(0, throttle.getInFlight());
+    }
+
+    @Test
+    public void interruptedAcquireKeepsNoPermit() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(0.5, 1);
+        throttle.acquire();
+        throttle.release();
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        Thread waiting = new Thread(() -> {
+            try {
+                throttle.acquire();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        waiting.start();
+        Thread.sleep(100);
+        waiting.interrupt();
+        waiting.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(interrupted.get());
+        assertEquals(0, throttle.getInFlight());
+    }
+
+    @Test
+    public void leasesAreGivenBackWhenTheUploadEnds() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(0, 3);
+        ThrottleLeases leases = new ThrottleLeases(throttle);
+
+        leases.acquire();
+        assertTrue(leases.tryAcquire());
+        assertEquals(2, throttle.getInFlight());
+
+        leases.close();
+        assertEquals(0, throttle.getInFlight());
+        assertEquals(0, leases.getLeases());
+
+        leases.release();
+        assertEquals(0, throttle.getInFlight());
+        assertFalse(leases.tryAcquire());
+        assertEquals(0, throttle.getInFlight());
+    }
+
+    @Test
+    public void releaseOfAnExpiredLeaseKeepsTheOthers() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(0, 3);
+        ThrottleLeases leases = new ThrottleLeases(throttle, 50);
+
+        leases.acquire();
+        Thread.sleep(100);
+        // expires the first lease, whose request is still running
+        leases.acquire();
+        assertEquals(1, throttle.getInFlight());
+        assertEquals(1, leases.getLeases());
+
+        leases.release();
+        assertEquals(1, throttle.getInFlight());
+        assertEquals(1, leases.getLeases());
+
+        leases.release();
+        assertEquals(0, throttle.getInFlight());
+        assertEquals(0, leases.getLeases());
+    }
+}
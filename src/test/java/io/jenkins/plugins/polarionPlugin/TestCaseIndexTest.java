@@ -0,0 +1,82 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCaseIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void findsTestCasesByClassnameAndName() throws Exception {
+        File file = new File(tmp.getRoot(), "index.bin");
+        TestCaseIndex.Builder builder = new TestCaseIndex.Builder();
+        builder.put("com.example.LoginTest.logsIn", "TC-1");
+        builder.put("com.example.LoginTest.logsOut", "TC-22");
+        builder.put("standalone", "TC-333");
+        builder.put("Größe.prüfen", "TC-ü");
+        builder.write(file, 100, 50);
+
+        TestCaseIndex index = TestCaseIndex.open(file);
+
+        assertEquals(4, index.size());
+        assertEquals(100, index.getUpdated());
+        assertEquals(50, index.getCompleted());
+        assertEquals("TC-1", index.id(index.find("com.example.LoginTest", "logsIn")));
+        assertEquals("TC-22", index.id(index.find("com.example.LoginTest", "logsOut")));
+        assertEquals("TC-333", index.id(index.find(null, "standalone")));
+        assertEquals("TC-333", index.id(index.find("", "standalone")));
+        assertEquals("TC-ü", index.id(index.find("Größe", "prüfen")));
+        assertEquals(-1, index.find("com.example.LoginTest", "unknown"));
+        assertEquals(-1, index.find(null, "logsIn"));
+    }
+
+    @Test
+    public void titleKeyMatchesClassnameAndNameKey() {
+        assertEquals(TestCaseIndex.key("a.b.C.test"), TestCaseIndex.key("a.b.C", "test"));
+        assertEquals(TestCaseIndex.key("test"), TestCaseIndex.key(null, "test"));
+        assertNotEquals(TestCaseIndex.key("a.b.C.test"), TestCaseIndex.key("a.b", "C.test.x"));
+    }
+
+    @Test
+    public void opensMissingOrForeignFilesAsEmpty() throws Exception {
+        File file = new File(tmp.getRoot(), "index.bin");
+        assertEquals(0, TestCaseIndex.open(file).size());
+        assertEquals(-1, TestCaseIndex.open(file).find("a", "b"));
+
+        Files.write(file.toPath(), "not an index, but long enough for a header".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, TestCaseIndex.open(file).size());
+
+        Files.write(file.toPath(), new byte[] {0x50, 0x54});
+        assertEquals(0, TestCaseIndex.open(file).size());
+    }
+
+    @Test
+    public void builderStartsFromAnExistingIndex() throws Exception {
+        File file = new File(tmp.getRoot(), "index.bin");
+        TestCaseIndex.Builder first = new TestCaseIndex.Builder();
+        first.put("Suite.kept", "TC-1");
+        first.put("Suite.renumbered", "TC-2");
+        first.write(file, 1, 1);
+
+        TestCaseIndex.Builder second = new TestCaseIndex.Builder(TestCaseIndex.open(file));
+        second.put("Suite.renumbered", "TC-3");
+        second.put("Suite.added", "TC-4");
+        second.write(file, 2, 1);
+        TestCaseIndex index = TestCaseIndex.open(file);
+
+        assertEquals(3, index.size());
+        assertEquals(2, index.getUpdated());
+        assertEquals("TC-1", index.id(index.find("Suite", "kept")));
+        assertEquals("TC-3", index.id(index.find("Suite", "renumbered")));
+        assertEquals("TC-4", index.id(index.find("Suite", "added")));
+    }
+}
@@ -0,0 +1,114 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class XUnitSlimmingTest {
+
+    private static final String RESULTS = "<testsuite name=\"s\">"
+            + "<testcase name=\"passed\"><properties><property name=\"owner\" value=\"qa\"/></properties>"
+            + "<system-out>lots of output</system-out><system-err>more</system-err></testcase>"
+            + "<testcase name=\"failed\"><properties><property name=\"owner\" value=\"dev\"/></properties>"
+            + "<failure message=\"0123456789abcdef\" type=\"AssertionError\">0123456789 stack trace</failure>"
+            + "</testcase>"
+            + "<system-out>suite output</system-out>"
+            + "</testsuite>";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void dropsOutput() throws Exception {
+        Document document = slim(new XUnitSlimming(true, 0, false), RESULTS);
+
+        assertEquals(0, document.getElementsByTagName("system-out").getLength());
+        assertEquals(0, document.getElementsByTagName("system-err").getLength());
+        assertEquals(2, document.getElementsByTagName("property").getLength());
+    }
+
+    @Test
+    public void truncatesFailureMessagesAndStackTraces() throws Exception {
+        Document document = slim(new XUnitSlimming(false, 10, false), RESULTS);
+
+        Element failure = (Element) document.getElementsByTagName("failure").item(0);
+        assertEquals("0123456789 [truncated]", failure.getAttribute("message"));
+        assertEquals("AssertionError", failure.getAttribute("type"));
+        assertEquals("0123456789 [truncated]", failure.getTextContent());
+        assertEquals(
+                "lots of output", document.getElementsByTagName("system-out").item(0).getTextContent());
+    }
+
+    @Test
+    public void dropsPropertiesOfPassedTestCasesOnly() throws Exception {
+        Document document = slim(new XUnitSlimming(false, 0, true), RESULTS);
+
+        Map<String, Map<String, String>> properties = XUnitStreamsTest.properties(document);
+        assertEquals(Map.of(), properties.get("passed"));
+        assertEquals(Map.of("owner", "dev"), properties.get("failed"));
+        assertEquals(List.of("passed", "failed"), XUnitStreamsTest.testCaseNames(document));
+    }
+
+    @Test
+    public void countsBytesBeforeAndAfter() throws Exception {
+        XUnitSlimming slimming = new XUnitSlimming(true, 10, true);
+        File file = write(RESULTS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        slimming.copy(file, out);
+
+        assertTrue(slimming.isEnabled());
+        assertEquals(file.length(), slimming.getBytesIn());
+        assertEquals(out.size(), slimming.getBytesOut());
+        assertTrue(slimming.getBytesOut() < slimming.getBytesIn());
+    }
+
+    @Test
+    public void noneKeepsEverythingAndCountsPerInstance() throws Exception {
+        XUnitSlimming first = XUnitSlimming.none();
+        XUnitSlimming second = XUnitSlimming.none();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        first.copy(write(RESULTS), out);
+
+        assertFalse(first.isEnabled());
+        assertEquals(2, XUnitStreamsTest.parse(out.toByteArray()).getElementsByTagName("system-out").getLength());
+        assertTrue(first.getBytesIn() > 0);
+        assertEquals(0, second.getBytesIn());
+    }
+
+    @Test
+    public void rejectsMalformedXml() throws Exception {
+        File file = write("<testsuite><testcase name=\"a\"><failure></testcase></testsuite>");
+
+        assertThrows(
+                XMLStreamException.class,
+                () -> new XUnitSlimming(true, 10, true).copy(file, new ByteArrayOutputStream()));
+    }
+
+    private Document slim(XUnitSlimming slimming, String xml) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        slimming.copy(write(xml), out);
+        return XUnitStreamsTest.parse(out.toByteArray());
+    }
+
+    private File write(String xml) throws Exception {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,339 @@
+package io.jenkins.plugins.polarionPlugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class XUnitStreamsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void splitCutsBetweenTestCasesAndReopensSuites() throws Exception {
+        StringBuilder xml = new StringBuilder(
+                "<testsuites tests=\"40\"><testsuite name=\"s\" tests=\"40\" failures=\"0\" time=\"1.5\">");
+        for (int i = 0; i < 40; i++) {
+            xml.append("<testcase classname=\"c\" name=\"t")
+                    .append(i)
+                    .append("\"><system-out>")
+                    .append("x".repeat(50))
+                    .append("</system-out></testcase>");
+        }
+        xml.append("</testsuite></testsuites>");
+        File file = write("results.xml", xml.toString());
+
+        List<File> chunks = XUnitStreams.split(file, 1000, tmp.newFolder());
+
+        assertTrue(chunks.size() > 1);
+        List<String> names = new ArrayList<>();
+        for (File chunk : chunks) {
+            assertTrue(chunk.getName() + " has " + chunk.length() + " bytes", chunk.length() <= 1000);
+            Document document = parse(chunk);
+            assertEquals("testsuites", document.getDocumentElement().getTagName());
+            Element suite = (Element) document.getElementsByTagName("testsuite").item(0);
+            assertEquals("s", suite.getAttribute("name"));
+            assertEquals("1.5", suite.getAttribute("time"));
+            // counts of the whole file would be wrong for a chunk
+            assertFalse(document.getDocumentElement().hasAttribute("tests"));
+            assertFalse(suite.hasAttribute("tests"));
+            assertFalse(suite.hasAttribute("failures"));
+            List<String> chunkNames = testCaseNames(document);
+            assertFalse(chunkNames.isEmpty());
+            names.addAll(chunkNames);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            expected.add("t" + i);
+        }
+        assertEquals(expected, names);
+    }
+
+    @Test
+    public void splitGivesAnOversizedTestCaseAChunkOfItsOwn() throws Exception {
+        File file = write(
+                "big.xml",
+                "<testsuite name=\"s\"><testcase name=\"small\"/><testcase name=\"big\"><system-out>"
+                        + "y".repeat(5000) + "</system-out></testcase><testcase name=\"after\"/></testsuite>");
+
+        List<File> chunks = XUnitStreams.split(file, 1000, tmp.newFolder());
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of("big"), testCaseNames(parse(chunks.get(1))));
+    }
+
+    @Test
+    public void splitKeepsAnEmptySuite() throws Exception {
+        File file = write("empty.xml", "<testsuite name=\"empty\" tests=\"0\"/>");
+
+        List<File> chunks = XUnitStreams.split(file, 1000, tmp.newFolder());
+
+        assertEquals(1, chunks.size());
+        Document document = parse(chunks.get(0));
+        assertEquals("empty", document.getDocumentElement().getAttribute("name"));
+        assertFalse(document.getDocumentElement().hasAttribute("tests"));
+        assertEquals(0, testCaseNames(document).size());
+    }
+
+    @Test
+    public void splitRejectsMalformedXml() throws Exception {
+        File file = write("broken.xml", "<testsuite><testcase name=\"a\"></testsuite>");
+
+        assertThrows(XMLStreamException.class, () -> XUnitStreams.split(file, 1000, tmp.newFolder()));
+    }
+
+    @Test
+    public void mergePutsTheSuitesOfAllFilesSideBySide() throws Exception {
+        File first = write(
+                "first.xml",
+                "<?xml version=\"1.0\"?><testsuites><testsuite name=\"a\"><testcase name=\"a1\"/></testsuite>"
+                        + "</testsuites>");
+        File second = write("second.xml", "<testsuite name=\"b\"><testcase name=\"b1\"/></testsuite>");
+        File empty = write("empty.xml", "<testsuites/>");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        XUnitStreams.merge(List.of(first, second, empty), out);
+
+        Document document = parse(out.toByteArray());
+        assertEquals("testsuites", document.getDocumentElement().getTagName());
+        assertEquals(1, document.getElementsByTagName("testsuites").getLength());
+        NodeList suites = document.getElementsByTagName("testsuite");
+        assertEquals(2, suites.getLength());
+        assertEquals("a", ((Element) suites.item(0)).getAttribute("name"));
+        assertEquals("b", ((Element) suites.item(1)).getAttribute("name"));
+        assertEquals(List.of("a1", "b1"), testCaseNames(document));
+    }
+
+    @Test
+    public void batchesStayWithinTheLimit() throws Exception {
+        File a = write("a.xml", "<testsuite>" + "a".repeat(400) + "</testsuite>");
+        File b = write("b.xml", "<testsuite>" + "b".repeat(400) + "</testsuite>");
+        File c = write("c.xml", "<testsuite>" + "c".repeat(400) + "</testsuite>");
+        File big = write("big.xml", "<testsuite>" + "d".repeat(2000) + "</testsuite>");
+
+        List<List<File>> batches = XUnitStreams.batches(List.of(a, b, big, c), 1000);
+
+        assertEquals(List.of(List.of(a, b), List.of(big), List.of(c)), batches);
+        assertEquals(List.of(), XUnitStreams.batches(List.of(), 1000));
+    }
+
+    @Test
+    public void filterChangedSendsOnlyNewAndChangedTestCases() throws Exception {
+        File first = write(
+                "run1.xml",
+                "<testsuite name=\"s\"><testcase classname=\"c\" name=\"same\" time=\"1\"/>"
+                        + "<testcase classname=\"c\" name=\"flips\"/></testsuite>");
+        DeltaIndex.Builder firstIndex = new DeltaIndex.Builder("P/run");
+        XUnitStreams.DeltaSummary firstSummary = new XUnitStreams.DeltaSummary();
+        assertEquals(
+                2,
+                XUnitStreams.filterChanged(
+                        first, tmp.newFile("out1.xml"), DeltaIndex.empty("P/run"), firstIndex, firstSummary));
+        assertEquals(2, firstSummary.added);
+
+        File second = write(
+                "run2.xml",
+                "<testsuite name=\"s\"><testcase classname=\"c\" name=\"same\" time=\"2\"/>"
+                        + "<testcase classname=\"c\" name=\"flips\"><failure message=\"boom\"/></testcase>"
+                        + "<testcase classname=\"c\" name=\"new\"/></testsuite>");
+        File out = tmp.newFile("out2.xml");
+        DeltaIndex.Builder secondIndex = new DeltaIndex.Builder("P/run");
+        XUnitStreams.DeltaSummary summary = new XUnitStreams.DeltaSummary();
+
+        int written = XUnitStreams.filterChanged(second, out, firstIndex.build(), secondIndex, summary);
+
+        assertEquals(2, written);
+        assertEquals(1, summary.added);
+        assertEquals(1, summary.changed);
+        assertEquals(1, summary.unchanged);
+        assertEquals(3, secondIndex.size());
+        Document document = parse(out);
+        assertEquals("s", document.getDocumentElement().getAttribute("name"));
+        assertEquals(List.of("flips", "new"), testCaseNames(document));
+    }
+
+    @Test
+    public void filterChangedLeavesOutSuitesWithoutChanges() throws Exception {
+        File file =
+                write("run.xml", "<testsuites><testsuite name=\"s\"><testcase name=\"a\"/></testsuite></testsuites>");
+        DeltaIndex.Builder index = new DeltaIndex.Builder("P/run");
+        XUnitStreams.filterChanged(
+                file, tmp.newFile("first.xml"), DeltaIndex.empty("P/run"), index, new XUnitStreams.DeltaSummary());
+        File out = tmp.newFile("second.xml");
+
+        int written = XUnitStreams.filterChanged(
+                file, out, index.build(), new DeltaIndex.Builder("P/run"), new XUnitStreams.DeltaSummary());
+
+        assertEquals(0, written);
+        Document document = parse(out);
+        assertEquals("testsuites", document.getDocumentElement().getTagName());
+        assertEquals(0, document.getElementsByTagName("testsuite").getLength());
+    }
+
+    @Test
+    public void annotateTestCaseIdsAddsTheIdOfKnownTestCases() throws Exception {
+        TestCaseIndex.Builder builder = new TestCaseIndex.Builder();
+        builder.put("com.example.LoginTest.valid", "TC-1");
+        builder.put("com.example.LoginTest.invalid", "TC-2");
+        builder.put("standalone", "TC-3");
+        builder.put("shared", "TC-4");
+        File indexFile = tmp.newFile("index.idx");
+        builder.write(indexFile, 1, 1);
+        File file = write(
+                "results.xml",
+                "<testsuite>"
+                        + "<testcase classname=\"com.example.LoginTest\" name=\"valid\"/>"
+                        + "<testcase classname=\"com.example.LoginTest\" name=\"invalid\">"
+                        + "<properties><property name=\"owner\" value=\"qa\"/></properties></testcase>"
+                        + "<testcase name=\"standalone\"/>"
+                        + "<testcase classname=\"com.example.OtherTest\" name=\"shared\"/>"
+                        + "<testcase classname=\"com.example.LoginTest\" name=\"valid2\">"
+                        + "<properties><property name=\"polarion-testcase-id\" value=\"TC-9\"/></properties></testcase>"
+                        + "</testsuite>");
+        File out = tmp.newFile("annotated.xml");
+
+        int annotated = XUnitStreams.annotateTestCaseIds(file, out, TestCaseIndex.open(indexFile));
+
+        assertEquals(3, annotated);
+        Map<String, Map<String, String>> properties = properties(parse(out));
+        assertEquals(Map.of("polarion-testcase-id", "TC-1"), properties.get("valid"));
+        assertEquals(Map.of("owner", "qa", "polarion-testcase-id", "TC-2"), properties.get("invalid"));
+        assertEquals(Map.of("polarion-testcase-id", "TC-3"), properties.get("standalone"));
+        // a test case with a classname is never matched by its bare name
+        assertEquals(Map.of(), properties.get("shared"));
+        assertEquals(Map.of("polarion-testcase-id", "TC-9"), properties.get("valid2"));
+    }
+
+    @Test
+    public void collectLinksMergesVerdictsPerWorkItem() throws Exception {
+        File file = write(
+                "links.xml",
+                "<testsuite>"
+                        + "<testcase name=\"a\"><properties><property name=\"req\" value=\"WI-1, WI-2\"/>"
+                        + "</properties></testcase>"
+                        + "<testcase name=\"b\"><properties><property name=\"req\" value=\"WI-2\"/></properties>"
+                        + "<failure/></testcase>"
+                        + "<testcase name=\"c\"><properties><property name=\"req\" value=\"WI-3\"/></properties>"
+                        + "<skipped/></testcase>"
+                        + "</testsuite>");
+        Map<String, Boolean> verdicts = new LinkedHashMap<>();
+
+        int linked = XUnitStreams.collectLinks(file, "req", verdicts);
+
+        assertEquals(2, linked);
+        assertEquals(Map.of("WI-1", true, "WI-2", false), verdicts);
+    }
+
+    @Test
+    public void pipeStreamsWhatTheProducerWrites() throws Exception {
+        byte[] data = new byte[300_001];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        try (InputStream in = XUnitStreams.pipe("test producer", out -> {
+            for (int i = 0; i < data.length; i += 1000) {
+                out.write(data, i, Math.min(1000, data.length - i));
+            }
+        })) {
+            assertTrue(Arrays.equals(data, in.readAllBytes()));
+        }
+    }
+
+    @Test
+    public void pipeReportsAProducerFailureToTheReader() throws Exception {
+        InputStream in = XUnitStreams.pipe("failing producer", out -> {
+            out.write("<testsuites>".getBytes(StandardCharsets.UTF_8));
+            out.close();
+            throw new XMLStreamException("broken input");
+        });
+
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertTrue(e.getMessage(), e.getMessage().contains("broken input"));
+    }
+
+    @Test
+    public void closingThePipeEndsTheProducer() throws Exception {
+        CountDownLatch ended = new CountDownLatch(1);
+        InputStream in = XUnitStreams.pipe("endless producer", out -> {
+            try {
+                while (true) {
+                    out.write(new byte[1024]);
+                }
+            } finally {
+                ended.countDown();
+            }
+        });
+        assertEquals(16, in.read(new byte[16]));
+
+        in.close();
+
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = tmp.newFile(name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    static Document parse(File file) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    }
+
+    static Document parse(byte[] content) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(content));
+    }
+
+    static List<String> testCaseNames(Document document) {
+        List<String> names = new ArrayList<>();
+        NodeList testCases = document.getElementsByTagName("testcase");
+        for (int i = 0; i < testCases.getLength(); i++) {
+            names.add(((Element) testCases.item(i)).getAttribute("name"));
+        }
+        return names;
+    }
+
+    /**
+     * @return properties of each test case by its name.
+     */
+    static Map<String, Map<String, String>> properties(Document document) {
+        Map<String, Map<String, String>> properties = new LinkedHashMap<>();
+        NodeList testCases = document.getElementsByTagName("testcase");
+        for (int i = 0; i < testCases.getLength(); i++) {
+            Element testCase = (Element) testCases.item(i);
+            Map<String, String> values = new LinkedHashMap<>();
+            NodeList property = testCase.getElementsByTagName("property");
+            for (int j = 0; j < property.getLength(); j++) {
+                Element element = (Element) property.item(j);
+                values.put(element.getAttribute("name"), element.getAttribute("value"));
+            }
+            properties.put(testCase.getAttribute("name"), values);
+        }
+        return properties;
+    }
+}